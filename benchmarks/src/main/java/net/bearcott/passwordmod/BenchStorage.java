@@ -0,0 +1,59 @@
+package net.bearcott.passwordmod;
+
+import com.google.gson.GsonBuilder;
+import net.bearcott.passwordmod.util.PasswordHash;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.phys.Vec3;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Loads AuthStorage from a scratch directory filled with generated data. AuthStorage
+ * is static, so this can only happen once per JVM — fine, since JMH forks one per
+ * benchmark and parameter set.
+ */
+final class BenchStorage {
+
+    static Path setUp(List<String> whitelistLines, Map<UUID, AuthStorage.PlayerSession> sessions) throws IOException {
+        Path dir = Files.createTempDirectory("one-password-auth-bench");
+        System.setProperty("one_password_auth.config_dir", dir.toString());
+        // Pre-hashed so load() doesn't spend its time in the KDF; a long timeout so no
+        // session expires mid-run.
+        Files.writeString(dir.resolve("one_password_auth_config.properties"),
+                "password_hash=" + PasswordHash.create("bench", 1000).encode() + "\ntimeout_seconds=86400\n",
+                StandardCharsets.UTF_8);
+        Files.write(dir.resolve("one_password_auth_ip_whitelist.txt"), whitelistLines, StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("one_password_auth_sessions.json"),
+                new GsonBuilder().create().toJson(sessions), StandardCharsets.UTF_8);
+        AuthStorage.load();
+        return dir;
+    }
+
+    static void tearDown(Path dir) throws IOException {
+        AuthStorage.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList())
+                Files.deleteIfExists(p);
+        }
+    }
+
+    /** Distinct IPv4 address per index, spread across subnets. */
+    static String ip(int i) {
+        return "10." + ((i >> 16) & 0xFF) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    static AuthStorage.PlayerSession session(String ip) {
+        AuthStorage.PlayerSession session = new AuthStorage.PlayerSession(GameType.SURVIVAL, false, 0,
+                new Vec3(0.5, 64, 0.5));
+        session.ip = ip;
+        return session;
+    }
+}
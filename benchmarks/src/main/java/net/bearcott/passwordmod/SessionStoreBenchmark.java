@@ -0,0 +1,55 @@
+package net.bearcott.passwordmod;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full session checkpoint (JSON + fsync + rename) and reading it back, across
+ * session counts. Writes hit the real disk under java.io.tmpdir, so results depend on
+ * that filesystem.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SessionStoreBenchmark {
+    @Param({"10", "1000", "10000"})
+    int sessions;
+
+    private Path dir;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<UUID, AuthStorage.PlayerSession> generated = new HashMap<>();
+        for (int i = 0; i < sessions; i++)
+            generated.put(new UUID(random.nextLong(), random.nextLong()), BenchStorage.session(BenchStorage.ip(i)));
+        dir = BenchStorage.setUp(List.of(), generated);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchStorage.tearDown(dir);
+    }
+
+    @Benchmark
+    public void saveSessionsToFile() {
+        AuthStorage.saveSessionsToFile();
+    }
+
+    @Benchmark
+    public int loadSessionsFromFile() {
+        AuthStorage.loadSessionsFromFile();
+        return AuthStorage.pendingSessionCount();
+    }
+}
@@ -0,0 +1,135 @@
+package net.bearcott.passwordmod;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mod's own per-player work in the END_SERVER_TICK handler — LockdownTick.run,
+ * the same code the server runs — with stand-in players: a ServerPlayer can't exist
+ * without a running server, so the game calls (teleport, title packets, kicks) are
+ * Blackhole sinks and the player lookup is a map, like the player list's. What's
+ * measured is the bookkeeping around them: registry snapshot, session lookup,
+ * whitelist check, timeout, reminder phase and drift checks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TickBenchmark {
+    private static final int OTHER_WHITELIST_ENTRIES = 1000;
+
+    @Param({"1", "20", "300"})
+    int locked;
+
+    private Path dir;
+    private int tick;
+    private final Map<UUID, StandIn> online = new HashMap<>();
+
+    // What the tick reads off a player; its address is all it needs.
+    private record StandIn(String ip) {
+    }
+
+    private static final class StandIns implements LockdownTick.Players<StandIn> {
+        private final Map<UUID, StandIn> online;
+        Blackhole bh;
+
+        StandIns(Map<UUID, StandIn> online) {
+            this.online = online;
+        }
+
+        @Override
+        public StandIn find(UUID uuid) {
+            return online.get(uuid);
+        }
+
+        @Override
+        public String ipAddress(StandIn player) {
+            return player.ip();
+        }
+
+        @Override
+        public boolean isAlive(StandIn player) {
+            return true;
+        }
+
+        @Override
+        public void liftLockdown(StandIn player, AuthStorage.PlayerSession session) {
+            bh.consume(session);
+        }
+
+        @Override
+        public void applyLockdown(StandIn player) {
+            bh.consume(player);
+        }
+
+        @Override
+        public void timeOut(StandIn player) {
+            bh.consume(player);
+        }
+
+        @Override
+        public void kickIfTickDelayed(StandIn player, AuthStorage.PlayerSession session) {
+            bh.consume(session.ticksUntilKick);
+        }
+
+        @Override
+        public void sendReminder(StandIn player) {
+            bh.consume(player);
+        }
+
+        @Override
+        public void restrictMovement(StandIn player, AuthStorage.PlayerSession session) {
+            bh.consume(session.joinPos);
+        }
+
+        @Override
+        public void reassertIfDrifted(StandIn player) {
+            bh.consume(player);
+        }
+    }
+
+    private final StandIns players = new StandIns(online);
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> whitelist = new ArrayList<>(OTHER_WHITELIST_ENTRIES);
+        for (int i = 0; i < OTHER_WHITELIST_ENTRIES; i++)
+            whitelist.add(BenchStorage.ip(locked + i) + "|" + new UUID(random.nextLong(), random.nextLong()));
+
+        UUID[] uuids = new UUID[locked];
+        Map<UUID, AuthStorage.PlayerSession> sessions = new HashMap<>();
+        for (int i = 0; i < locked; i++) {
+            String ip = BenchStorage.ip(i);
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+            sessions.put(uuids[i], BenchStorage.session(ip));
+            online.put(uuids[i], new StandIn(ip));
+        }
+        dir = BenchStorage.setUp(whitelist, sessions);
+        for (UUID uuid : uuids)
+            PendingPlayerRegistry.add(uuid);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchStorage.tearDown(dir);
+    }
+
+    @Benchmark
+    public void tick(Blackhole bh) {
+        players.bh = bh;
+        LockdownTick.run(players, tick++);
+    }
+}
@@ -0,0 +1,91 @@
+package net.bearcott.passwordmod;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whitelist checks (every tick per locked player, and on every connection) and the
+ * journal line built for each whitelist/revoke, across whitelist sizes. A second set of
+ * players is whitelisted by /24 range only, so rangeHit misses the exact pairs and
+ * resolves in the radix trie.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WhitelistBenchmark {
+    @Param({"100", "10000", "100000"})
+    int size;
+
+    private Path dir;
+    private String[] ips;
+    private UUID[] uuids;
+    private UUID[] strangers;
+    private UUID[] rangeUuids;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        ips = new String[size];
+        uuids = new UUID[size];
+        strangers = new UUID[size];
+        rangeUuids = new UUID[size];
+        List<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ips[i] = BenchStorage.ip(i);
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+            strangers[i] = new UUID(random.nextLong(), random.nextLong());
+            rangeUuids[i] = new UUID(random.nextLong(), random.nextLong());
+            lines.add(ips[i] + "|" + uuids[i]);
+            lines.add(ips[i].substring(0, ips[i].lastIndexOf('.')) + ".0/24|" + rangeUuids[i]);
+        }
+        dir = BenchStorage.setUp(lines, Map.of());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchStorage.tearDown(dir);
+    }
+
+    // Walk the entries in order so every call probes a different slot.
+    private int next() {
+        int i = cursor;
+        cursor = i + 1 == size ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public boolean isWhitelistedHit() {
+        int i = next();
+        return AuthStorage.isWhitelisted(ips[i], uuids[i]);
+    }
+
+    @Benchmark
+    public boolean isWhitelistedMiss() {
+        int i = next();
+        return AuthStorage.isWhitelisted(ips[i], strangers[i]);
+    }
+
+    @Benchmark
+    public boolean isWhitelistedRangeHit() {
+        int i = next();
+        return AuthStorage.isWhitelisted(ips[i], rangeUuids[i]);
+    }
+
+    @Benchmark
+    public String pairLine() {
+        int i = next();
+        return AuthStorage.pairLine(ips[i], uuids[i]);
+    }
+}
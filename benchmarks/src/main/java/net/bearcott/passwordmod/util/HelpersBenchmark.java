@@ -0,0 +1,37 @@
+package net.bearcott.passwordmod.util;
+
+import net.bearcott.passwordmod.PasswordMod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** The failed-login replies, run once per wrong /login. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HelpersBenchmark {
+    private static final String[] INPUTS = {
+            "PassWord123",
+            "67",
+            "sixty-seven",
+            "is it Sixty Seven??",
+            "komipu42!",
+            "a much longer guess that someone typed while annoyed at the captcha 4 8 + 1 9",
+    };
+
+    private int call;
+
+    @Benchmark
+    public String getSassyMessage() {
+        int i = call++;
+        return Helpers.getSassyMessage(1 + i % PasswordMod.MAX_ATTEMPTS, INPUTS[i % INPUTS.length]);
+    }
+
+    @Benchmark
+    public boolean check67Answer() {
+        return Helpers.check67Answer(INPUTS[call++ % INPUTS.length]);
+    }
+}
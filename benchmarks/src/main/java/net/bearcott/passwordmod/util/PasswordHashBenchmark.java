@@ -0,0 +1,37 @@
+package net.bearcott.passwordmod.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One /login verification at different password_kdf_iterations settings. A wrong
+ * guess must cost the same as a right one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+    @Param({"10000", "100000", "600000"})
+    int iterations;
+
+    private PasswordHash hash;
+
+    @Setup
+    public void setUp() {
+        hash = PasswordHash.create("komipu42!", iterations);
+    }
+
+    @Benchmark
+    public boolean verifyCorrect() {
+        return hash.verify("komipu42!");
+    }
+
+    @Benchmark
+    public boolean verifyWrong() {
+        return hash.verify("PassWord123");
+    }
+}
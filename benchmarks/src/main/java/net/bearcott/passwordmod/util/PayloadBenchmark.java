@@ -0,0 +1,62 @@
+package net.bearcott.passwordmod.util;
+
+import net.bearcott.passwordmod.PasswordMod;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building Discord payloads: formatting one event line, packing a backlog of lines
+ * into as few requests as fit (plus their JSON), and the server status embed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PayloadBenchmark {
+    @Param({"1", "20", "200"})
+    int queued;
+
+    private final Deque<String> backlog = new ArrayDeque<>();
+    private int attempt;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < queued; i++)
+            backlog.add(failedAttempt("Player" + i, 1 + i % PasswordMod.MAX_ATTEMPTS, "hunter" + i));
+    }
+
+    private static String failedAttempt(String name, int attempt, String input) {
+        return String.format(Messages.WEBHOOK_FAILED_ATTEMPT_FMT, name, attempt, PasswordMod.MAX_ATTEMPTS,
+                input) + String.format(Messages.WEBHOOK_IP_SUFFIX_FMT, "203.0.113.7", "Sydney, Australia");
+    }
+
+    @Benchmark
+    public String formatEvent() {
+        attempt = attempt % PasswordMod.MAX_ATTEMPTS + 1;
+        return failedAttempt("Steve", attempt, "PassWord123");
+    }
+
+    // Drains a copy of the backlog the way WebhookDispatcher.flush does, one request
+    // body per batch. The copy is part of the measured cost but small next to it.
+    @Benchmark
+    public void packBacklog(Blackhole bh) {
+        Deque<String> queue = new ArrayDeque<>(backlog);
+        while (!queue.isEmpty()) {
+            Deque<String> batch = new ArrayDeque<>();
+            StringBuilder content = new StringBuilder();
+            WebhookDispatcher.pack(queue, batch, content);
+            bh.consume(WebhookDispatcher.payload(content.toString()));
+        }
+    }
+
+    @Benchmark
+    public String statusEmbed() {
+        return ServerStatusLogger.embedJson(Messages.SERVER_ONLINE_TITLE, Messages.SERVER_STARTED_DESC, 0x57F287);
+    }
+}
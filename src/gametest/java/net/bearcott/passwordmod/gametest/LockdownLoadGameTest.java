@@ -0,0 +1,149 @@
+package net.bearcott.passwordmod.gametest;
+
+import net.bearcott.passwordmod.AuthStorage;
+import net.bearcott.passwordmod.PasswordMod;
+import net.bearcott.passwordmod.PendingPlayerRegistry;
+import net.fabricmc.fabric.api.gametest.v1.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.GameType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bot wave sitting in lockdown: PLAYERS mock players join through the real
+ * placeNewPlayer / JOIN path (so each gets a durable pending session), then the mod's
+ * END_SERVER_TICK handler is measured for MEASURE_TICKS ticks while a slice of the
+ * crowd moves (restrictMovement teleports) and has its game mode changed (drift
+ * re-assertion). Reminder titles go out on their normal staggered schedule.
+ *
+ * Logs percentiles and fails when they exceed the budget. Budgets and sizes can be
+ * overridden with -Done_password_auth.load.<name>=<value> on the game test run.
+ */
+public class LockdownLoadGameTest {
+    private static final int PLAYERS = Integer.getInteger("one_password_auth.load.players", 300);
+    private static final int JOINS_PER_TICK = Integer.getInteger("one_password_auth.load.joins_per_tick", 30);
+    private static final int SETTLE_TICKS = 20;
+    private static final int MEASURE_TICKS = Integer.getInteger("one_password_auth.load.ticks", 400);
+    private static final int MOVERS_PER_TICK = 25;  // restrictMovement has to teleport these back
+    private static final int DRIFTERS_PER_TICK = 5; // game mode flipped behind the mod's back
+
+    // Budgets, in milliseconds. A tick is 50 ms; the mod's share should stay a small
+    // fraction of it even with a full bot wave.
+    private static final double BUDGET_TICK_P50_MS = budget("tick_p50_ms", 2.0);
+    private static final double BUDGET_TICK_P99_MS = budget("tick_p99_ms", 5.0);
+    private static final double BUDGET_JOIN_MEAN_MS = budget("join_mean_ms", 20.0);
+
+    private static double budget(String name, double fallback) {
+        String value = System.getProperty("one_password_auth.load." + name);
+        return value != null ? Double.parseDouble(value) : fallback;
+    }
+
+    @GameTest(maxTicks = 2000)
+    public void lockedBotWave(GameTestHelper helper) {
+        List<ServerPlayer> players = new ArrayList<>(PLAYERS);
+        long[] tickNanos = new long[MEASURE_TICKS];
+        long[] joinNanos = {0};
+        int[] tick = {0};
+        long[] lastTotal = {0};
+
+        helper.onEachTick(() -> {
+            int t = tick[0]++;
+
+            // Phase 1: the wave arrives, a batch per tick.
+            if (players.size() < PLAYERS) {
+                long start = System.nanoTime();
+                for (int i = 0; i < JOINS_PER_TICK && players.size() < PLAYERS; i++)
+                    players.add(helper.makeMockServerPlayerInLevel());
+                joinNanos[0] += System.nanoTime() - start;
+                return;
+            }
+
+            // Phase 2: let lockdown settle, then start sampling from a clean baseline.
+            int measured = t - (PLAYERS + JOINS_PER_TICK - 1) / JOINS_PER_TICK - SETTLE_TICKS;
+            if (measured < 0) {
+                lastTotal[0] = PasswordMod.TICK_TIME.totalNanos();
+                return;
+            }
+
+            // Phase 3: one sample per tick — the handler runs once per server tick, after
+            // this callback, so the growth of TICK_TIME's total since the previous
+            // callback is its cost for that tick.
+            long total = PasswordMod.TICK_TIME.totalNanos();
+            if (measured > 0)
+                tickNanos[measured - 1] = total - lastTotal[0];
+            lastTotal[0] = total;
+
+            if (measured < MEASURE_TICKS)
+                disturb(players, measured);
+            else if (measured == MEASURE_TICKS)
+                report(helper, players, tickNanos, joinNanos[0]);
+        });
+    }
+
+    // Bots don't hold still: nudge some so the next tick teleports them back, and flip
+    // a few out of spectator so the drift hooks fire.
+    private static void disturb(List<ServerPlayer> players, int measured) {
+        for (int i = 0; i < MOVERS_PER_TICK; i++) {
+            ServerPlayer p = players.get((measured * MOVERS_PER_TICK + i) % players.size());
+            p.setPos(p.getX() + 0.5, p.getY(), p.getZ());
+        }
+        for (int i = 0; i < DRIFTERS_PER_TICK; i++) {
+            ServerPlayer p = players.get((measured * DRIFTERS_PER_TICK + i * 7) % players.size());
+            p.setGameMode(GameType.SURVIVAL);
+        }
+    }
+
+    private static void report(GameTestHelper helper, List<ServerPlayer> players, long[] tickNanos, long joinNanos) {
+        int locked = PendingPlayerRegistry.size();
+        int samples = tickNanos.length;
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        double p50 = millis(percentile(sorted, 0.50));
+        double p90 = millis(percentile(sorted, 0.90));
+        double p99 = millis(percentile(sorted, 0.99));
+        double max = millis(sorted[samples - 1]);
+        double joinMean = millis(joinNanos) / players.size();
+        double serverMspt = TimeUnit.NANOSECONDS.toMicros(helper.getLevel().getServer().getAverageTickTimeNanos())
+                / 1000.0;
+
+        PasswordMod.LOGGER.info(
+                "Load scenario: {} locked, {} ticks: handler p50={} p90={} p99={} max={} ms; join mean={} ms; server MSPT={}",
+                locked, samples, fmt(p50), fmt(p90), fmt(p99), fmt(max), fmt(joinMean), fmt(serverMspt));
+
+        // Leave nothing behind in the run directory's session store.
+        for (ServerPlayer p : players) {
+            p.connection.disconnect(Component.literal("load scenario finished"));
+            AuthStorage.removePendingSession(p.getUUID());
+        }
+
+        List<String> over = new ArrayList<>();
+        if (locked < PLAYERS)
+            over.add("only " + locked + "/" + PLAYERS + " players were locked");
+        if (p50 > BUDGET_TICK_P50_MS)
+            over.add("handler p50 " + fmt(p50) + " ms > " + BUDGET_TICK_P50_MS);
+        if (p99 > BUDGET_TICK_P99_MS)
+            over.add("handler p99 " + fmt(p99) + " ms > " + BUDGET_TICK_P99_MS);
+        if (joinMean > BUDGET_JOIN_MEAN_MS)
+            over.add("join mean " + fmt(joinMean) + " ms > " + BUDGET_JOIN_MEAN_MS);
+        if (!over.isEmpty())
+            helper.fail(Component.literal("Over budget: " + String.join("; ", over)));
+        helper.succeed();
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String fmt(double ms) {
+        return String.format("%.3f", ms);
+    }
+}
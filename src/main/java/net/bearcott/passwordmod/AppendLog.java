@@ -0,0 +1,127 @@
+package net.bearcott.passwordmod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Newline-delimited, fsync-per-record append-only file. Shared by the whitelist
+ * journal and the session write-ahead log.
+ *
+ * A record is only "committed" once its trailing newline is on disk, so a crash
+ * mid-append leaves a torn last line that {@link #readRecords()} drops.
+ *
+ * Not thread-safe: callers serialize through AuthStorage's SAVE_EXECUTOR.
+ */
+public class AppendLog {
+    private final Path path;
+    private FileChannel channel;
+
+    public AppendLog(Path path) {
+        this.path = path;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /** Complete records in append order; a torn final record is discarded. */
+    public List<String> readRecords() throws IOException {
+        List<String> records = new ArrayList<>();
+        if (!Files.exists(path))
+            return records;
+        String text = Files.readString(path, StandardCharsets.UTF_8);
+        int start = 0;
+        int nl;
+        while ((nl = text.indexOf('\n', start)) >= 0) {
+            if (nl > start)
+                records.add(text.substring(start, nl));
+            start = nl + 1;
+        }
+        return records;
+    }
+
+    /** Appends one record, fsyncs it, and returns the log's size in bytes afterwards. */
+    public long append(String record) throws IOException {
+        return append(List.of(record));
+    }
+
+    /** Appends several records with a single fsync. */
+    public long append(List<String> records) throws IOException {
+        FileChannel ch = open();
+        StringBuilder sb = new StringBuilder();
+        for (String record : records)
+            sb.append(record).append('\n');
+        writeFully(ch, ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        ch.force(false);
+        return ch.size();
+    }
+
+    public void truncate() throws IOException {
+        close();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.force(true);
+        }
+    }
+
+    public void close() {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            PasswordMod.LOGGER.warn("Failed to close {}", path, e);
+        }
+        channel = null;
+    }
+
+    /** Crash-safe replace: write a sibling temp file, fsync it, then rename over the target. */
+    public static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ch, ByteBuffer.wrap(data));
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // --------- Internals ---------
+
+    private FileChannel open() throws IOException {
+        if (channel != null)
+            return channel;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        // If the last run died mid-record, terminate the torn line so the next record
+        // doesn't get glued onto it.
+        long size = channel.size();
+        if (size > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                reader.read(last, size - 1);
+            }
+            if (last.get(0) != '\n')
+                writeFully(channel, ByteBuffer.wrap(new byte[] { '\n' }));
+        }
+        return channel;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining())
+            ch.write(buf);
+    }
+}
@@ -0,0 +1,64 @@
+package net.bearcott.passwordmod;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.bearcott.passwordmod.util.Messages;
+import net.bearcott.passwordmod.util.Metrics;
+import net.bearcott.passwordmod.util.PasswordHash;
+import net.bearcott.passwordmod.util.TaskScheduler.Priority;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+
+import static net.minecraft.commands.Commands.literal;
+
+/** Admin-only /auth subcommands. Locked players are de-opped, so they never see these. */
+public class AuthCommands {
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(literal("auth")
+                .requires(Commands.hasPermission(Commands.LEVEL_ADMINS))
+                .then(literal("reload").executes(context -> reload(context.getSource())))
+                .then(literal("stats").executes(context -> stats(context.getSource())))
+                .then(literal("hash").executes(context -> hash(context.getSource()))));
+    }
+
+    // The password_hash= line for the current password. Sent to the asking op (or the
+    // console) only: not broadcast to other admins, not logged.
+    private static int hash(CommandSourceStack source) {
+        PasswordHash hash = AuthStorage.config().passwordHash();
+        if (hash == null) {
+            source.sendFailure(Component.literal(Messages.NO_PASSWORD_SET));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.literal(String.format(Messages.PASSWORD_HASH_FMT, hash.encode())), false);
+        return 1;
+    }
+
+    private static int stats(CommandSourceStack source) {
+        source.sendSuccess(() -> Component.literal(Messages.STATS_HEADER), false);
+        for (String line : Metrics.summaryLines())
+            source.sendSuccess(() -> Component.literal(line), false);
+        return 1;
+    }
+
+    private static int reload(CommandSourceStack source) {
+        MinecraftServer server = source.getServer();
+        // Reading the file can re-hash a plaintext password or recompile the GeoIP table;
+        // do it on the worker pool and report back on the server thread.
+        boolean queued = PasswordMod.WORKER_POOL.execute(Priority.ALERT, () -> {
+            String problem = AuthStorage.reloadConfig();
+            server.execute(() -> {
+                if (problem == null)
+                    source.sendSuccess(() -> Component.literal(Messages.CONFIG_RELOADED), true);
+                else
+                    source.sendFailure(Component.literal(String.format(Messages.CONFIG_NOT_RELOADED_FMT, problem)));
+            });
+        });
+        if (!queued) {
+            source.sendFailure(Component.literal(Messages.RATE_LIMITED));
+            return 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,108 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.Helpers;
+import net.bearcott.passwordmod.util.Messages;
+import net.bearcott.passwordmod.util.PasswordHash;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * One immutable snapshot of the properties file. AuthStorage swaps the whole record on
+ * reload, so a reader that grabs {@code AuthStorage.config()} once sees a consistent
+ * set of values even if a reload lands halfway through its work.
+ *
+ * passwordHash is null when no usable password is configured; nobody can
+ * authenticate then.
+ */
+public record AuthConfig(
+        PasswordHash passwordHash,
+        String webhookUrl,
+        String adminWebhookUrl,
+        String loginTitle,
+        String loginDescription,
+        int timeoutSec,
+        String geoIpDatabase,
+        boolean geoIpHttpFallback,
+        int httpTimeoutMs,
+        int httpMaxInFlight,
+        int loginVerifyThreads,
+        int loginVerifyQueue,
+        int connectIpBurst,
+        int connectIpPerMinute,
+        int connectSubnetBurst,
+        int connectSubnetPerMinute,
+        int maxPendingPlayers,
+        int whitelistTtlDays,
+        int whitelistMaxEntries,
+        int whitelistPrefixV4,
+        int whitelistPrefixV6,
+        boolean watchConfig,
+        int metricsPort,
+        String metricsBind) {
+
+    /** Everything at its default, no password. In effect until the first load. */
+    public static AuthConfig defaults() {
+        return fromProperties(new Properties(), null);
+    }
+
+    public static AuthConfig read(Path path) throws IOException {
+        Properties props = new Properties();
+        try (Reader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            props.load(r);
+        }
+        return fromProperties(props, path);
+    }
+
+    private static AuthConfig fromProperties(Properties props, Path source) {
+        return new AuthConfig(
+                passwordHash(props, source),
+                props.getProperty("webhook_url", ""),
+                props.getProperty("admin_webhook_url", ""),
+                props.getProperty("login_title", Messages.LOGIN_DEFAULT_TITLE),
+                props.getProperty("login_description", Messages.LOGIN_DEFAULT_DESCRIPTION),
+                Helpers.numberOrDefault(props.getProperty("timeout_seconds"), 180),
+                props.getProperty("geoip_database", "one_password_auth_geoip.csv"),
+                Boolean.parseBoolean(props.getProperty("geoip_http_fallback", "true")),
+                Helpers.numberOrDefault(props.getProperty("http_timeout_ms"), 5000),
+                Helpers.numberOrDefault(props.getProperty("http_max_in_flight"), 8),
+                Helpers.numberOrDefault(props.getProperty("login_verify_threads"), 2),
+                Helpers.numberOrDefault(props.getProperty("login_verify_queue"), 32),
+                Helpers.numberOrDefault(props.getProperty("connect_ip_burst"), 5),
+                Helpers.numberOrDefault(props.getProperty("connect_ip_per_minute"), 10),
+                Helpers.numberOrDefault(props.getProperty("connect_subnet_burst"), 20),
+                Helpers.numberOrDefault(props.getProperty("connect_subnet_per_minute"), 60),
+                Helpers.numberOrDefault(props.getProperty("max_pending_players"), 20),
+                // Absent means a config from before aging: keep its pairs. New configs get 90.
+                Helpers.numberOrDefault(props.getProperty("whitelist_ttl_days"), 0),
+                Helpers.numberOrDefault(props.getProperty("whitelist_max_entries"), 50000),
+                // Floors keep a typo from trusting a UUID from half the internet.
+                Math.clamp(Helpers.numberOrDefault(props.getProperty("whitelist_prefix_v4"), 32), 8, 32),
+                Math.clamp(Helpers.numberOrDefault(props.getProperty("whitelist_prefix_v6"), 128), 16, 128),
+                Boolean.parseBoolean(props.getProperty("watch_config", "false")),
+                Helpers.numberOrDefault(props.getProperty("metrics_port"), 0),
+                props.getProperty("metrics_bind", "127.0.0.1").trim());
+    }
+
+    // password_hash wins over password. A plaintext password is hashed in memory at the
+    // configured cost, so both forms verify the same way (and take the same time).
+    private static PasswordHash passwordHash(Properties props, Path source) {
+        String encoded = props.getProperty("password_hash", "").trim();
+        if (!encoded.isEmpty()) {
+            PasswordHash hash = PasswordHash.parse(encoded);
+            if (hash != null)
+                return hash;
+            PasswordMod.LOGGER.error("Ignoring malformed password_hash in {}", source);
+        }
+
+        String plain = props.getProperty("password", "");
+        if (plain.isEmpty())
+            return null;
+        return PasswordHash.create(plain,
+                Helpers.numberOrDefault(props.getProperty("password_kdf_iterations"), PasswordHash.DEFAULT_ITERATIONS));
+    }
+}
@@ -0,0 +1,157 @@
+package net.bearcott.passwordmod;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.bearcott.passwordmod.util.Helpers;
+import net.bearcott.passwordmod.util.Metrics;
+import net.bearcott.passwordmod.util.TaskScheduler;
+import net.bearcott.passwordmod.util.TaskScheduler.Priority;
+import net.bearcott.passwordmod.util.WebhookDispatcher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wires the mod's stats into {@link Metrics} (shown by /auth stats) and serves them in
+ * the Prometheus text format when metrics_port is set.
+ *
+ * The endpoint reads gauges without taking their owners' locks, including a few
+ * server-thread-only collection sizes: a scrape may see a value a moment stale, which
+ * is fine for monitoring and keeps scrapes from ever stalling a tick.
+ */
+public class AuthMetrics {
+    private static HttpServer server;           // guarded by AuthMetrics.class
+    private static ExecutorService serverThread; // guarded by AuthMetrics.class
+
+    // --------- Registry ---------
+
+    public static void register() {
+        Metrics.timer("tick", "", "END_SERVER_TICK handler time while players are locked",
+                PasswordMod.TICK_TIME);
+        Metrics.timer("login", "", "/login submitted to verdict applied", LoginPipeline.VERIFY_LATENCY);
+        Metrics.timer("session_save_wait", "", "Server thread blocked on a durable session record",
+                AuthStorage.SESSION_SAVE_WAIT);
+        Metrics.timer("session_log_write", "", "Session log append and fsync",
+                AuthStorage.SESSION_LOG_WRITE_TIME);
+        Metrics.timer("session_checkpoint", "", "saveSessionsToFile", AuthStorage.SESSION_CHECKPOINT_TIME);
+        Metrics.timer("whitelist_write", "", "Whitelist journal record", AuthStorage.WHITELIST_WRITE_TIME);
+        Metrics.timer("webhook_request", "", "Discord webhook request", WebhookDispatcher.REQUEST_LATENCY);
+        Metrics.timer("geo_http_lookup", "", "ip-api.com location lookup", Helpers.GEO_HTTP_LATENCY);
+
+        Metrics.counter("webhook_failures", "", "Webhook requests without a 2xx or 429 response",
+                WebhookDispatcher.REQUEST_FAILURES::sum);
+        Metrics.counter("geo_http_failures", "", "ip-api.com lookups that returned nothing usable",
+                Helpers.GEO_HTTP_FAILURES::sum);
+        Metrics.counter("location_cache_hits", "", "Location lookups served from cache",
+                Helpers.LOCATION_CACHE::hits);
+        Metrics.counter("location_cache_misses", "", "Location lookups that had to resolve",
+                Helpers.LOCATION_CACHE::misses);
+        Metrics.counter("connections_throttled", "scope=\"ip\"", "Connections refused by the token buckets",
+                () -> ConnectionThrottle.perIp().denied());
+        Metrics.counter("connections_throttled", "scope=\"subnet\"", "Connections refused by the token buckets",
+                () -> ConnectionThrottle.perSubnet().denied());
+        Metrics.counter("packets_dropped", "", "Serverbound packets dropped from locked players",
+                PacketFirewall::droppedTotal);
+        Metrics.counter("whitelist_dropped", "reason=\"expired\"", "Whitelist pairs removed by aging",
+                AuthStorage::whitelistExpired);
+        Metrics.counter("whitelist_dropped", "reason=\"cap\"", "Whitelist pairs removed by aging",
+                AuthStorage::whitelistEvicted);
+
+        Metrics.gauge("save_queue_depth", "", "Tasks waiting on the persistence thread",
+                AuthStorage::saveQueueDepth);
+        registerScheduler("worker", PasswordMod.WORKER_POOL::queued, PasswordMod.WORKER_POOL);
+        // The verifier pool is rebuilt on reconfigure, so look it up on every read.
+        registerScheduler("verify", p -> LoginPipeline.verifier().queued(p), null);
+        Metrics.gauge("pending_sessions", "", "Players who haven't logged in yet (online or not)",
+                AuthStorage::pendingSessionCount);
+        Metrics.gauge("locked_players", "", "Online players in lockdown", PendingPlayerRegistry::size);
+        Metrics.gauge("admission_waiting", "", "Players queued for a lockdown slot", PendingAdmission::waiting);
+        Metrics.gauge("whitelist_entries", "", "Whitelisted IP/UUID pairs", AuthStorage::whitelistSize);
+        Metrics.gauge("whitelist_ranges", "", "Whitelisted address range/UUID entries",
+                AuthStorage::whitelistRangeCount);
+    }
+
+    private interface QueueDepth {
+        int queued(Priority priority);
+    }
+
+    // Queue depth for every priority; rejected/shed counts only for a pool that lives
+    // as long as the registry does.
+    private static void registerScheduler(String pool, QueueDepth depth, TaskScheduler fixed) {
+        for (Priority p : Priority.values())
+            Metrics.gauge(pool + "_queue_depth", label(p), "Tasks queued on the " + pool + " pool",
+                    () -> depth.queued(p));
+        if (fixed == null)
+            return;
+        for (Priority p : Priority.values())
+            Metrics.counter(pool + "_rejected", label(p), "Tasks refused by the " + pool + " pool",
+                    () -> fixed.rejected(p));
+        for (Priority p : Priority.values())
+            Metrics.counter(pool + "_shed", label(p), "Queued tasks dropped for higher-priority work",
+                    () -> fixed.shed(p));
+    }
+
+    private static String label(Priority p) {
+        return "priority=\"" + p.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    // --------- Endpoint ---------
+
+    /** (Re)binds the scrape endpoint; port 0 turns it off. */
+    public static synchronized void configureEndpoint(String bind, int port) {
+        stopEndpoint();
+        if (port <= 0)
+            return;
+        try {
+            HttpServer s = HttpServer.create(new InetSocketAddress(bind, port), 0);
+            s.createContext("/metrics", AuthMetrics::serve);
+            // One daemon thread: scrapes are rare and cheap, and this must never keep the
+            // JVM alive.
+            serverThread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "one-password-auth/metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            s.setExecutor(serverThread);
+            s.start();
+            server = s;
+            PasswordMod.LOGGER.info("Serving auth metrics on http://{}:{}/metrics", bind, port);
+        } catch (IOException | IllegalArgumentException e) {
+            PasswordMod.LOGGER.error("Failed to serve auth metrics on {}:{}", bind, port, e);
+            stopEndpoint();
+        }
+    }
+
+    public static synchronized void stopEndpoint() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (serverThread != null) {
+            serverThread.shutdownNow();
+            serverThread = null;
+        }
+    }
+
+    private static void serve(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
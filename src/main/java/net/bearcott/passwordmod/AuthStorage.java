@@ -4,8 +4,14 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
+import net.bearcott.passwordmod.util.GeoIpDatabase;
 import net.bearcott.passwordmod.util.Helpers;
+import net.bearcott.passwordmod.util.HttpTransport;
+import net.bearcott.passwordmod.util.IpAddresses;
+import net.bearcott.passwordmod.util.LatencyStat;
+import net.bearcott.passwordmod.util.LocationProvider;
 import net.bearcott.passwordmod.util.Messages;
+import net.bearcott.passwordmod.util.PasswordHash;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
@@ -16,25 +22,76 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AuthStorage {
-    private static final Path CONFIG_PATH = FabricLoader.getInstance().getConfigDir()
-            .resolve("one_password_auth_config.properties");
-    private static final Path IP_PATH = FabricLoader.getInstance().getConfigDir()
-            .resolve("one_password_auth_ip_whitelist.txt");
-    private static final File SESSIONS_FILE = FabricLoader.getInstance().getConfigDir()
-            .resolve("one_password_auth_sessions.json").toFile();
+    private static final Path CONFIG_DIR = configDir();
+    private static final Path CONFIG_PATH = CONFIG_DIR.resolve("one_password_auth_config.properties");
+    private static final Path IP_PATH = CONFIG_DIR.resolve("one_password_auth_ip_whitelist.txt");
+    private static final Path IP_JOURNAL_PATH = CONFIG_DIR.resolve("one_password_auth_ip_whitelist.journal");
+    private static final Path SESSIONS_PATH = CONFIG_DIR.resolve("one_password_auth_sessions.json");
+    private static final Path SESSIONS_WAL_PATH = CONFIG_DIR.resolve("one_password_auth_sessions.wal");
 
     private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
-
-    private static final Set<String> whitelistedPairs = new HashSet<>();
+    private static final int SESSION_SAVE_TIMEOUT_SECONDS = 5;
+    private static final int SESSION_CHECKPOINT_RECORDS = 256;
+    private static final long SLOW_SESSION_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Last-seen times are kept to the hour: a player rejoining every few minutes costs
+    // at most one journal record an hour.
+    private static final int SEEN_RESOLUTION_MINUTES = 60;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private static final WhitelistIndex WHITELIST = new WhitelistIndex();
+    // Server thread only, like WHITELIST itself.
+    private static final WhitelistAging WHITELIST_AGING = new WhitelistAging(WHITELIST);
+    private static final PrefixWhitelist RANGES = new PrefixWhitelist();
+    private static final WhitelistAging RANGE_AGING = new WhitelistAging(RANGES);
+    private static final List<String> EVICTED_PAIRS = new ArrayList<>();
+    // Text of each opaque whitelisted address by its hashed key, so an evicted pair's
+    // revoke record names the same "ip|uuid" line it was added under. Counts the pairs
+    // still using it and drops the entry with the last one; server thread (and load()).
+    private static final Map<Long, OpaqueAddress> OPAQUE_TEXT = new HashMap<>();
+    // Only touched from SAVE_EXECUTOR after load(), which serializes appends and compaction.
+    private static final WhitelistJournal WHITELIST_JOURNAL = new WhitelistJournal(IP_PATH, IP_JOURNAL_PATH);
+    // Scratch for IpAddresses.parse so whitelist lookups don't allocate.
+    private static final ThreadLocal<long[]> IP_SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
     private static final Map<UUID, PlayerSession> SESSIONS = new ConcurrentHashMap<>();
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor(
-            namedDaemonFactory("one-password-auth/save"));
+    private static final Gson GSON = new GsonBuilder().create();
+    // Per-UUID create/remove records since the last checkpoint of SESSIONS_PATH.
+    // Only touched from SAVE_EXECUTOR (and from shutdown() once it has drained).
+    private static final AppendLog SESSIONS_WAL = new AppendLog(SESSIONS_WAL_PATH);
+    private static int sessionWalRecords;
+    // Group commit: records queue here and the next flush on SAVE_EXECUTOR writes every
+    // queued record with a single fsync. Anything that arrives while a flush is in
+    // progress rides along with the following one.
+    private static final Queue<PendingRecord> SESSION_RECORD_QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean sessionFlushScheduled = new AtomicBoolean();
+    // Session creates not yet known to be fsync'd, by player, in join order; the server
+    // thread waits for all of them at once in awaitSessionRecords, and an entry only
+    // leaves once its record is on disk. Server thread only.
+    private static final Map<UUID, CompletableFuture<Void>> UNSYNCED_CREATES = new LinkedHashMap<>();
+    // A wait timed out and nothing has landed since: later waits only check, so a stuck
+    // disk costs one timeout instead of one per tick and per player save.
+    private static boolean sessionLogStalled;
+    // How long the server thread blocked waiting for session records to be durable.
+    public static final LatencyStat SESSION_SAVE_WAIT = new LatencyStat();
+    // Time spent on disk on SAVE_EXECUTOR: session log appends (fsync included), full
+    // session checkpoints, and whitelist journal records.
+    public static final LatencyStat SESSION_LOG_WRITE_TIME = new LatencyStat();
+    public static final LatencyStat SESSION_CHECKPOINT_TIME = new LatencyStat();
+    public static final LatencyStat WHITELIST_WRITE_TIME = new LatencyStat();
+    // A plain single-thread pool, spelled out so its backlog can be reported.
+    private static final ThreadPoolExecutor SAVE_EXECUTOR = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), namedDaemonFactory("one-password-auth/save"));
+
+    // -Done_password_auth.config_dir=<dir> points storage somewhere else; the
+    // benchmarks use it to run against a scratch directory without a game instance.
+    private static Path configDir() {
+        String override = System.getProperty("one_password_auth.config_dir");
+        return override != null ? Path.of(override) : FabricLoader.getInstance().getConfigDir();
+    }
 
     private static ThreadFactory namedDaemonFactory(String name) {
         return r -> {
@@ -44,12 +101,15 @@ public class AuthStorage {
         };
     }
 
-    public static String serverPassword;
-    public static String webhookUrl;
-    public static String adminWebhookUrl;
-    public static String loginTitle;
-    public static String loginDescription;
-    public static int timeoutSec;
+    // Swapped whole on reload; read it once per operation for a consistent view.
+    private static volatile AuthConfig config = AuthConfig.defaults();
+    // Serializes reloads. Not the class lock: that one guards session flushes, which
+    // must not wait behind a slow reload.
+    private static final Object CONFIG_LOCK = new Object();
+
+    public static AuthConfig config() {
+        return config;
+    }
 
     public static class PlayerSession {
         // Persistent fields (saved to JSON)
@@ -89,11 +149,11 @@ public class AuthStorage {
             this.didFetchLocation = false;
         }
 
-        public void setIpLocationAsync(String ip, ExecutorService workerPool) {
-            // Network fetch must not share the single-threaded persistence executor;
-            // a slow origin would back up all session writes behind it.
-            workerPool.submit(() -> {
-                this.ipLocation = Helpers.fetchLocationData(ip);
+        public void setIpLocationAsync(String ip) {
+            // Non-blocking and cached: completes on the HTTP client's thread (or right
+            // away for an offline/cached hit), never on the persistence executor.
+            Helpers.fetchLocationData(ip).thenAccept(loc -> {
+                this.ipLocation = loc;
                 this.ip = ip;
                 this.didFetchLocation = true;
             });
@@ -113,22 +173,12 @@ public class AuthStorage {
     // --------- Initialization ---------
 
     public static void load() {
-        Properties props = new Properties();
+        AuthConfig loaded = AuthConfig.defaults();
         try {
             if (!Files.exists(CONFIG_PATH))
                 writeDefaultConfig();
-            try (Reader r = Files.newBufferedReader(CONFIG_PATH, StandardCharsets.UTF_8)) {
-                props.load(r);
-            }
-
-            serverPassword = props.getProperty("password", "");
-            webhookUrl = props.getProperty("webhook_url", "");
-            adminWebhookUrl = props.getProperty("admin_webhook_url", "");
-            loginTitle = props.getProperty("login_title", Messages.LOGIN_DEFAULT_TITLE);
-            loginDescription = props.getProperty("login_description", Messages.LOGIN_DEFAULT_DESCRIPTION);
-            timeoutSec = Helpers.numberOrDefault(props.getProperty("timeout_seconds"), 180);
-
-            if (serverPassword.isEmpty()) {
+            loaded = AuthConfig.read(CONFIG_PATH);
+            if (loaded.passwordHash() == null) {
                 PasswordMod.LOGGER.error(
                         "Auth mod has no password configured at {}. Set 'password=' in the file "
                         + "to a non-empty value — until then no player can authenticate.",
@@ -137,21 +187,123 @@ public class AuthStorage {
         } catch (IOException e) {
             PasswordMod.LOGGER.error("Failed to load auth config at {}", CONFIG_PATH, e);
         }
+        applyConfig(null, loaded);
 
-        if (Files.exists(IP_PATH)) {
-            try {
-                for (String line : Files.readAllLines(IP_PATH)) {
-                    // Legacy format was ip-only; require ip|uuid now so the pair is proven.
-                    if (line.contains("|"))
-                        whitelistedPairs.add(line);
+        // Snapshot (the original ip|uuid text file) plus any journal records since the
+        // last compaction. A first boot after upgrading just has no journal yet.
+        try {
+            int now = WhitelistAging.nowMinute();
+            boolean untracked = false;
+            for (Map.Entry<String, Integer> entry : WHITELIST_JOURNAL.readAll().entrySet()) {
+                String line = entry.getKey();
+                int sep = line.lastIndexOf('|');
+                int seen = entry.getValue();
+                if (seen == WhitelistJournal.UNKNOWN_SEEN) {
+                    untracked = true;
+                    seen = now;
+                }
+                try {
+                    String ip = line.substring(0, sep);
+                    UUID uuid = UUID.fromString(line.substring(sep + 1));
+                    long[] range = new long[4];
+                    if (ip.indexOf('/') < 0)
+                        addWhitelistPair(ip, uuid, seen);
+                    else if (!IpAddresses.parseCidr(ip, range))
+                        throw new IllegalArgumentException("not a range: " + ip);
+                    else
+                        addWhitelistRange(uuid, range[0], range[1], IpAddresses.cidrLength(range), seen);
+                } catch (IllegalArgumentException e) {
+                    PasswordMod.LOGGER.warn("Skipping malformed whitelist entry '{}' in {}", line, IP_PATH);
                 }
-            } catch (IOException e) {
-                PasswordMod.LOGGER.error("Failed to load whitelist at {}", IP_PATH, e);
             }
+            // Pairs from before last-seen tracking: stamp them once, or every restart
+            // would start their TTL over.
+            if (untracked)
+                SAVE_EXECUTOR.submit(() -> {
+                    try {
+                        WHITELIST_JOURNAL.compact();
+                    } catch (IOException e) {
+                        PasswordMod.LOGGER.error("Failed to compact whitelist at {}", IP_PATH, e);
+                    }
+                });
+        } catch (IOException e) {
+            PasswordMod.LOGGER.error("Failed to load whitelist at {}", IP_PATH, e);
         }
         loadSessionsFromFile();
     }
 
+    /**
+     * Re-reads the config file and swaps it in. Safe from any thread; concurrent calls
+     * are serialized. Returns null on success, otherwise why the current config was kept.
+     */
+    public static String reloadConfig() {
+        synchronized (CONFIG_LOCK) {
+            AuthConfig next;
+            try {
+                next = AuthConfig.read(CONFIG_PATH);
+            } catch (IOException e) {
+                PasswordMod.LOGGER.error("Failed to reload auth config at {}", CONFIG_PATH, e);
+                return "couldn't read " + CONFIG_PATH.getFileName();
+            }
+            // A half-saved or botched edit must not lock every future player out.
+            if (next.passwordHash() == null && config.passwordHash() != null)
+                return "no usable password in the file";
+            applyConfig(config, next);
+            PasswordMod.LOGGER.info("Reloaded auth config from {}", CONFIG_PATH);
+            return null;
+        }
+    }
+
+    // Reconfigures only the subsystems whose settings changed (rebuilding a pool or
+    // bucket table throws away its state), then publishes the snapshot. Callers hold
+    // CONFIG_LOCK, or run before anything else can (load).
+    private static void applyConfig(AuthConfig prev, AuthConfig next) {
+        if (prev == null || prev.httpTimeoutMs() != next.httpTimeoutMs()
+                || prev.httpMaxInFlight() != next.httpMaxInFlight())
+            HttpTransport.configure(next.httpTimeoutMs(), next.httpMaxInFlight());
+        if (prev == null || prev.connectIpBurst() != next.connectIpBurst()
+                || prev.connectIpPerMinute() != next.connectIpPerMinute()
+                || prev.connectSubnetBurst() != next.connectSubnetBurst()
+                || prev.connectSubnetPerMinute() != next.connectSubnetPerMinute())
+            ConnectionThrottle.configure(next.connectIpBurst(), next.connectIpPerMinute(),
+                    next.connectSubnetBurst(), next.connectSubnetPerMinute());
+        if (prev == null || prev.loginVerifyThreads() != next.loginVerifyThreads()
+                || prev.loginVerifyQueue() != next.loginVerifyQueue())
+            LoginPipeline.configure(next.loginVerifyThreads(), next.loginVerifyQueue());
+        PendingAdmission.configure(next.maxPendingPlayers());
+        if (prev == null || !prev.geoIpDatabase().equals(next.geoIpDatabase())
+                || prev.geoIpHttpFallback() != next.geoIpHttpFallback())
+            configureLocationLookup(next);
+        if (prev == null || prev.metricsPort() != next.metricsPort()
+                || !prev.metricsBind().equals(next.metricsBind()))
+            AuthMetrics.configureEndpoint(next.metricsBind(), next.metricsPort());
+
+        config = next;
+
+        if (next.watchConfig())
+            ConfigWatcher.start(CONFIG_PATH);
+        else
+            ConfigWatcher.stop();
+    }
+
+    private static void configureLocationLookup(AuthConfig cfg) {
+        String geoIpDatabase = cfg.geoIpDatabase();
+        List<LocationProvider> providers = new ArrayList<>();
+        if (geoIpDatabase != null && !geoIpDatabase.isEmpty()) {
+            Path dbPath = CONFIG_DIR.resolve(geoIpDatabase);
+            try {
+                GeoIpDatabase db = GeoIpDatabase.open(dbPath);
+                if (db != null)
+                    providers.add(db);
+            } catch (IOException e) {
+                PasswordMod.LOGGER.error("Failed to load GeoIP database at {}", dbPath, e);
+            }
+        }
+        if (cfg.geoIpHttpFallback())
+            providers.add(Helpers::fetchLocationDataHttp);
+        Helpers.configureLocationProviders(providers);
+    }
+
     private static void writeDefaultConfig() throws IOException {
         // Written manually (not via Properties.store) so per-key comments survive for
         // admins reading the file. UTF-8 so § color codes round-trip through editors.
@@ -163,10 +315,60 @@ public class AuthStorage {
                 #   Required. The shared password everyone uses with /login.
                 #   A random phonetic password is generated on first run — change it below if you want.
                 #
+                # password_hash
+                #   Optional. Use instead of password to keep the plaintext out of this file.
+                #   Format pbkdf2-sha256$<iterations>$<salt>$<hash>. The server logs one for
+                #   the generated password when it writes this file; /auth hash (ops only)
+                #   prints one for the current password.
+                #
+                # password_kdf_iterations
+                #   Cost of hashing a plaintext password (PBKDF2 iterations). Higher is
+                #   slower to brute-force and slower per /login attempt.
+                #
+                # login_verify_threads / login_verify_queue
+                #   Threads checking /login attempts, and how many attempts may wait for
+                #   them. Attempts beyond the queue get "try again" instead of piling up.
+                #
+                # connect_ip_burst / connect_ip_per_minute
+                # connect_subnet_burst / connect_subnet_per_minute
+                #   Connection rate limits per IP and per subnet (/24 IPv4, /64 IPv6),
+                #   checked before the player spawns. Burst is how many connections may
+                #   arrive back to back; per_minute is how fast that allowance refills.
+                #   Whitelisted players are never limited.
+                #
+                # max_pending_players
+                #   Most players allowed in the login waiting room at once (0 = no limit).
+                #   Extra players are told their place in line and let in, in order, as
+                #   they reconnect. Whitelisted players skip the line.
+                #
+                # whitelist_ttl_days
+                #   Forget a whitelisted UUID+IP pair nobody has joined from in this many
+                #   days; that player just logs in again (0 = keep forever).
+                #
+                # whitelist_max_entries
+                #   Most UUID+IP pairs (and, separately, UUID+range entries) to keep; past
+                #   it the least recently seen are forgotten first (0 = no limit).
+                #
+                # whitelist_prefix_v4 / whitelist_prefix_v6
+                #   How much of the address a successful /login trusts the player from.
+                #   32 / 128 is that exact IP; e.g. 24 / 48 covers their provider's block,
+                #   so mobile and CGNAT players whose IP keeps changing inside it don't
+                #   have to log in again. At least 8 / 16.
+                #
+                # watch_config
+                #   true to reload this file automatically when it's saved. Either way,
+                #   an admin can run /auth reload.
+                #
+                # metrics_port / metrics_bind
+                #   Serve Prometheus metrics at http://<bind>:<port>/metrics (0 = off).
+                #   There's no authentication, so keep it on 127.0.0.1 or a private
+                #   network. /auth stats shows the same numbers in game.
+                #
                 # webhook_url
                 #   Public Discord channel (player activity feed).
                 #   Logs: joins, login attempts (including what the player typed),
-                #         auth successes, timeouts, advancements by authed players.
+                #         auth successes, timeouts, advancements by authed players (bursts
+                #         are merged into one message per player).
                 #
                 # admin_webhook_url
                 #   Admin/security Discord channel.
@@ -181,6 +383,18 @@ public class AuthStorage {
                 #
                 # timeout_seconds
                 #   Kick unauthenticated players after this many seconds of inactivity.
+                #
+                # geoip_database
+                #   Optional offline IP-location table in this config folder, one
+                #   "cidr,city,country" per line (e.g. 203.0.113.0/24,Sydney,Australia).
+                #   Compiled to a .bin next to it on startup; no network calls needed.
+                #
+                # geoip_http_fallback
+                #   true to ask ip-api.com for IPs the offline table doesn't cover.
+                #
+                # http_timeout_ms / http_max_in_flight
+                #   Per-request timeout and concurrent request cap for webhook and
+                #   geo-lookup HTTP calls (shared, keep-alive client).
 
                 password=%s
                 webhook_url=
@@ -188,11 +402,34 @@ public class AuthStorage {
                 login_title=§6Welcome and Incredible!
                 login_description=§7Identify yourself or perish.
                 timeout_seconds=180
+                geoip_database=one_password_auth_geoip.csv
+                geoip_http_fallback=true
+                http_timeout_ms=5000
+                http_max_in_flight=8
+                password_kdf_iterations=100000
+                login_verify_threads=2
+                login_verify_queue=32
+                connect_ip_burst=5
+                connect_ip_per_minute=10
+                connect_subnet_burst=20
+                connect_subnet_per_minute=60
+                max_pending_players=20
+                whitelist_ttl_days=90
+                whitelist_max_entries=50000
+                whitelist_prefix_v4=32
+                whitelist_prefix_v6=128
+                watch_config=false
+                metrics_port=0
+                metrics_bind=127.0.0.1
                 """.formatted(generatedPassword);
         Files.writeString(CONFIG_PATH, content, StandardCharsets.UTF_8);
         PasswordMod.LOGGER.info(
                 "No config file found — generated default /login password: {}  (edit {} to change it)",
                 generatedPassword, CONFIG_PATH);
+        // Only here: the hash is as good as the password to an offline guesser, so it
+        // doesn't belong in every startup log.
+        PasswordMod.LOGGER.info("To keep the password out of {}, replace 'password=' with: password_hash={}",
+                CONFIG_PATH, PasswordHash.create(generatedPassword, PasswordHash.DEFAULT_ITERATIONS).encode());
     }
 
     // --------- Session Management ---------
@@ -208,14 +445,19 @@ public class AuthStorage {
         PlayerSession previous = SESSIONS.putIfAbsent(uuid, ps);
         if (previous != null)
             return previous;
-        // Durable save before returning: the caller will mutate the player's vanilla state
-        // (setGameMode/invuln/blindness) next, so the session file must already reflect the
-        // true originalMode. Otherwise a crash between mutation and the next async save
-        // would leave vanilla playerdata in lockdown-state but no session on disk, and the
-        // next join would snapshot SPECTATOR as originalMode, stranding the player.
-        // Route through SAVE_EXECUTOR so this write is serialized with any in-flight async
-        // saves — two concurrent FileWriter truncates would interleave and corrupt the JSON.
-        saveSessionsToFileBlocking();
+        // The caller mutates the player's vanilla state (setGameMode/invuln/blindness)
+        // next, so the session record must be on disk before that state can be: otherwise
+        // a crash after vanilla saved the player in lockdown would leave no session, and
+        // the next join would snapshot SPECTATOR as originalMode, stranding the player.
+        // Vanilla only writes playerdata from PlayerList.save, so rather than block this
+        // join on its own fsync, every create of the tick is awaited together at the end
+        // of the tick, or before a player save if that comes first (awaitSessionRecords),
+        // and the save is skipped while the record still isn't durable (isSessionDurable).
+        // Route through SAVE_EXECUTOR so this append is serialized with in-flight records
+        // and checkpoints — otherwise a checkpoint could truncate the log underneath it.
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        enqueueSessionRecord(createRecord(uuid, ps), durable);
+        UNSYNCED_CREATES.put(uuid, durable);
         return ps;
     }
 
@@ -227,35 +469,250 @@ public class AuthStorage {
         return SESSIONS.containsKey(uuid);
     }
 
+    public static int pendingSessionCount() {
+        return SESSIONS.size();
+    }
+
     public static void removePendingSession(UUID uuid) {
         if (SESSIONS.remove(uuid) != null)
-            saveSessionsToFileAsync();
+            enqueueSessionRecord(removeRecord(uuid), null);
     }
 
     // --------- Whitelist ---------
 
+    /**
+     * Trusts this UUID from this IP after a successful /login — or from the IP's whole
+     * range when whitelist_prefix_v4 / whitelist_prefix_v6 is shorter than a full
+     * address.
+     */
     public static void whitelist(String ip, UUID uuid) {
         if (ip == null || uuid == null)
             return;
-        if (whitelistedPairs.add(pairKey(ip, uuid))) {
-            // Snapshot before handing off to SAVE_EXECUTOR — the HashSet would CME if a
-            // second login added to it while Files.write was iterating.
-            List<String> snapshot = new ArrayList<>(whitelistedPairs);
-            SAVE_EXECUTOR.submit(() -> {
-                try {
-                    Files.write(IP_PATH, snapshot,
-                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-                } catch (IOException e) {
-                    PasswordMod.LOGGER.error("Failed to write whitelist at {}", IP_PATH, e);
+        int now = WhitelistAging.nowMinute();
+        long[] ipBits = IP_SCRATCH.get();
+        int length = IpAddresses.parse(ip, ipBits) ? rangeLength(ipBits[0], ipBits[1], config) : 128;
+        if (length < 128) {
+            long hi = ipBits[0] & PrefixWhitelist.hiMask(length);
+            long lo = ipBits[1] & PrefixWhitelist.loMask(length);
+            if (addWhitelistRange(uuid, hi, lo, length, now)) {
+                String line = rangeLine(hi, lo, length, uuid);
+                submitWhitelistWrite("range", () -> WHITELIST_JOURNAL.appendAdd(line, now));
+            }
+            return;
+        }
+        if (addWhitelistPair(ip, uuid, now)) {
+            // One small fsync'd journal record per login instead of rewriting the file.
+            String line = pairLine(ip, uuid);
+            submitWhitelistWrite("entry", () -> WHITELIST_JOURNAL.appendAdd(line, now));
+        }
+    }
+
+    /** Takes back one pair, or a range when `ip` is written as "addr/len". */
+    public static void revoke(String ip, UUID uuid) {
+        if (ip == null || uuid == null)
+            return;
+        if (ip.indexOf('/') >= 0) {
+            long[] range = new long[4];
+            if (!IpAddresses.parseCidr(ip, range))
+                return;
+            int length = IpAddresses.cidrLength(range);
+            if (length < 128) {
+                if (RANGES.remove(uuid, range[0], range[1], length)) {
+                    String line = rangeLine(range[0], range[1], length, uuid);
+                    submitWhitelistWrite("revoke", () -> WHITELIST_JOURNAL.appendRevoke(line));
                 }
-            });
+                return;
+            }
+            ip = IpAddresses.format(range[0], range[1]); // "/32" or "/128": one address
+        }
+        long[] ipBits = IP_SCRATCH.get();
+        IpAddresses.parse(ip, ipBits);
+        if (WHITELIST.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), ipBits[0], ipBits[1])) {
+            releaseOpaque(ipBits[0], ipBits[1]);
+            String line = pairLine(ip, uuid);
+            submitWhitelistWrite("revoke", () -> WHITELIST_JOURNAL.appendRevoke(line));
         }
     }
 
+    /**
+     * isWhitelisted for a player joining the server, which also counts as the pair (or
+     * range) being seen: it restarts its idle TTL and moves it to the back of the
+     * eviction order. Server thread.
+     */
+    public static boolean isWhitelistedOnJoin(String ip, UUID uuid) {
+        if (ip == null || uuid == null)
+            return false;
+        long[] ipBits = IP_SCRATCH.get();
+        IpAddresses.parse(ip, ipBits);
+        long hi = ipBits[0], lo = ipBits[1];
+        long msb = uuid.getMostSignificantBits(), lsb = uuid.getLeastSignificantBits();
+        int now = WhitelistAging.nowMinute();
+
+        int seen = WHITELIST.seen(msb, lsb, hi, lo);
+        if (seen != WhitelistIndex.NOT_FOUND) {
+            if (now - seen >= SEEN_RESOLUTION_MINUTES) {
+                WHITELIST.touch(msb, lsb, hi, lo, now);
+                String line = pairLine(ip, uuid);
+                submitWhitelistWrite("sighting", () -> WHITELIST_JOURNAL.appendSeen(line, now));
+            }
+            return true;
+        }
+
+        int length = RANGES.match(uuid, hi, lo);
+        if (length < 0)
+            return false;
+        long netHi = hi & PrefixWhitelist.hiMask(length), netLo = lo & PrefixWhitelist.loMask(length);
+        if (now - RANGES.seen(uuid, netHi, netLo, length) >= SEEN_RESOLUTION_MINUTES) {
+            RANGES.touch(uuid, netHi, netLo, length, now);
+            String line = rangeLine(netHi, netLo, length, uuid);
+            submitWhitelistWrite("sighting", () -> WHITELIST_JOURNAL.appendSeen(line, now));
+        }
+        return true;
+    }
+
+    /**
+     * Drops pairs and ranges unseen for whitelist_ttl_days, then the least recently
+     * seen beyond whitelist_max_entries (per list). Server thread; costs a wheel bucket
+     * or so per hour.
+     */
+    public static void sweepWhitelist() {
+        AuthConfig cfg = config;
+        long droppedBefore = whitelistExpired() + whitelistEvicted();
+        int now = WhitelistAging.nowMinute();
+        long ttlMinutes = cfg.whitelistTtlDays() * MINUTES_PER_DAY;
+        WHITELIST_AGING.sweep(now, ttlMinutes, cfg.whitelistMaxEntries(), AuthStorage::evictWhitelistPair);
+        RANGE_AGING.sweep(now, ttlMinutes, cfg.whitelistMaxEntries(), AuthStorage::evictWhitelistRange);
+        if (EVICTED_PAIRS.isEmpty())
+            return;
+
+        // One fsync for the whole sweep; a lowered cap can drop thousands at once.
+        List<String> lines = List.copyOf(EVICTED_PAIRS);
+        EVICTED_PAIRS.clear();
+        submitWhitelistWrite("revokes", () -> WHITELIST_JOURNAL.appendRevokes(lines));
+        PasswordMod.LOGGER.info("Whitelist aging: dropped {} entries, {} pairs and {} ranges left",
+                whitelistExpired() + whitelistEvicted() - droppedBefore, WHITELIST.size(), RANGES.size());
+    }
+
+    public static long whitelistExpired() {
+        return WHITELIST_AGING.expired() + RANGE_AGING.expired();
+    }
+
+    public static long whitelistEvicted() {
+        return WHITELIST_AGING.evicted() + RANGE_AGING.evicted();
+    }
+
     public static boolean isWhitelisted(String ip, UUID uuid) {
         if (ip == null || uuid == null)
             return false;
-        return whitelistedPairs.contains(pairKey(ip, uuid));
+        long[] ipBits = IP_SCRATCH.get();
+        IpAddresses.parse(ip, ipBits);
+        return isWhitelisted(ipBits[0], ipBits[1], uuid);
+    }
+
+    // Same check from an already-parsed address (connection paths have raw bytes). The
+    // range lookup returns right away while nobody has a range.
+    public static boolean isWhitelisted(long ipHi, long ipLo, UUID uuid) {
+        return uuid != null
+                && (WHITELIST.contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), ipHi, ipLo)
+                        || RANGES.match(uuid, ipHi, ipLo) >= 0);
+    }
+
+    public static int whitelistSize() {
+        return WHITELIST.size();
+    }
+
+    public static int whitelistRangeCount() {
+        return RANGES.size();
+    }
+
+    private static boolean addWhitelistPair(String ip, UUID uuid, int seenMinute) {
+        long[] ipBits = IP_SCRATCH.get();
+        IpAddresses.parse(ip, ipBits);
+        long msb = uuid.getMostSignificantBits(), lsb = uuid.getLeastSignificantBits();
+        if (!WHITELIST.add(msb, lsb, ipBits[0], ipBits[1], seenMinute))
+            return false;
+        if (IpAddresses.isOpaque(ipBits[0]))
+            OPAQUE_TEXT.computeIfAbsent(ipBits[1], k -> new OpaqueAddress(ip)).pairs++;
+        WHITELIST_AGING.file(msb, lsb, ipBits[0], ipBits[1], seenMinute);
+        return true;
+    }
+
+    // hi/lo with the host bits already zeroed.
+    private static boolean addWhitelistRange(UUID uuid, long hi, long lo, int length, int seenMinute) {
+        if (!RANGES.add(uuid, hi, lo, length, seenMinute))
+            return false;
+        RANGE_AGING.file(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                PrefixWhitelist.keyHi(hi, length), PrefixWhitelist.keyLo(lo, length), seenMinute);
+        return true;
+    }
+
+    private static void evictWhitelistPair(long msb, long lsb, long ipHi, long ipLo) {
+        if (!WHITELIST.remove(msb, lsb, ipHi, ipLo))
+            return;
+        String ip = IpAddresses.isOpaque(ipHi) ? OPAQUE_TEXT.get(ipLo).text : IpAddresses.format(ipHi, ipLo);
+        releaseOpaque(ipHi, ipLo);
+        EVICTED_PAIRS.add(pairKey(ip, new UUID(msb, lsb)));
+    }
+
+    // After a pair is removed: forgets an opaque address's text once no pair uses it.
+    private static void releaseOpaque(long ipHi, long ipLo) {
+        if (!IpAddresses.isOpaque(ipHi))
+            return;
+        OpaqueAddress opaque = OPAQUE_TEXT.get(ipLo);
+        if (opaque != null && --opaque.pairs == 0)
+            OPAQUE_TEXT.remove(ipLo);
+    }
+
+    private static final class OpaqueAddress {
+        final String text;
+        int pairs;
+
+        OpaqueAddress(String text) {
+            this.text = text;
+        }
+    }
+
+    private static void evictWhitelistRange(long msb, long lsb, long keyHi, long keyLo) {
+        int length = PrefixWhitelist.keyLength(keyHi, keyLo);
+        long hi = length < 64 ? PrefixWhitelist.keyPrefix(keyHi) : keyHi;
+        long lo = length >= 64 ? PrefixWhitelist.keyPrefix(keyLo) : keyLo;
+        UUID uuid = new UUID(msb, lsb);
+        if (RANGES.remove(uuid, hi, lo, length))
+            EVICTED_PAIRS.add(rangeLine(hi, lo, length, uuid));
+    }
+
+    // Auto-whitelist prefix for this address, in 128-bit terms (IPv4 sits at ::ffff:0:0/96).
+    private static int rangeLength(long hi, long lo, AuthConfig cfg) {
+        return IpAddresses.isV4(hi, lo) ? 96 + cfg.whitelistPrefixV4() : cfg.whitelistPrefixV6();
+    }
+
+    private interface JournalWrite {
+        void run() throws IOException;
+    }
+
+    // Whitelist journal records are written on SAVE_EXECUTOR, in submission order.
+    private static void submitWhitelistWrite(String what, JournalWrite write) {
+        SAVE_EXECUTOR.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                write.run();
+            } catch (IOException e) {
+                PasswordMod.LOGGER.error("Failed to append whitelist {} to {}", what, IP_JOURNAL_PATH, e);
+            }
+            WHITELIST_WRITE_TIME.record(System.nanoTime() - start);
+        });
+    }
+
+    // Canonical "ip|uuid" record so an add and a later revoke of the same pair match
+    // in the journal even if the address was spelled differently.
+    static String pairLine(String ip, UUID uuid) {
+        return pairKey(WhitelistJournal.canonicalIp(ip), uuid);
+    }
+
+    // Same for a range: "network/length|uuid", IPv4 lengths relative to the 32-bit
+    // address as parseCidr reads them back.
+    private static String rangeLine(long hi, long lo, int length, UUID uuid) {
+        return pairKey(IpAddresses.formatCidr(hi, lo, length), uuid);
     }
 
     private static String pairKey(String ip, UUID uuid) {
@@ -264,58 +721,195 @@ public class AuthStorage {
 
     // --------- Persistence ---------
 
-    private static void loadSessionsFromFile() {
-        if (!SESSIONS_FILE.exists())
-            return;
-        try (Reader r = new FileReader(SESSIONS_FILE)) {
-            Map<UUID, PlayerSession> loaded = GSON.fromJson(r, new TypeToken<Map<UUID, PlayerSession>>() {
-            }.getType());
-            if (loaded != null) {
-                // Gson bypasses constructors/field initializers via Unsafe, so transient
-                // fields load as JVM defaults (ticksUntilKick=0 not -1, ipLocation=null).
-                // Reset each to safe defaults before publishing to avoid instant-kick + NPE
-                // on the first tick after restart. Also guard originalMode against null
-                // (missing-field deserialization) so liftLockdown can't NPE later.
-                loaded.values().forEach(ps -> {
-                    if (ps.originalMode == null)
-                        ps.originalMode = GameType.SURVIVAL;
-                    ps.resetLockdownTimer();
-                });
-                SESSIONS.putAll(loaded);
+    static void loadSessionsFromFile() {
+        Map<UUID, PlayerSession> loaded = new HashMap<>();
+        if (Files.exists(SESSIONS_PATH)) {
+            try (Reader r = Files.newBufferedReader(SESSIONS_PATH, StandardCharsets.UTF_8)) {
+                Map<UUID, PlayerSession> snapshot = GSON.fromJson(r, new TypeToken<Map<UUID, PlayerSession>>() {
+                }.getType());
+                if (snapshot != null)
+                    loaded.putAll(snapshot);
+            } catch (Exception e) {
+                PasswordMod.LOGGER.error("Failed to load sessions from {}", SESSIONS_PATH, e);
+            }
+        }
+
+        // Replay creates/removes logged after the last checkpoint, in order.
+        int replayed = 0;
+        try {
+            for (String record : SESSIONS_WAL.readRecords()) {
+                try {
+                    if (record.charAt(0) == '+') {
+                        int sep = record.indexOf(' ');
+                        loaded.put(UUID.fromString(record.substring(1, sep)),
+                                GSON.fromJson(record.substring(sep + 1), PlayerSession.class));
+                    } else if (record.charAt(0) == '-') {
+                        loaded.remove(UUID.fromString(record.substring(1)));
+                    }
+                    replayed++;
+                } catch (RuntimeException e) {
+                    PasswordMod.LOGGER.warn("Skipping malformed session record in {}: {}", SESSIONS_WAL_PATH, record);
+                }
             }
-        } catch (Exception e) {
-            PasswordMod.LOGGER.error("Failed to load sessions from {}", SESSIONS_FILE, e);
+        } catch (IOException e) {
+            PasswordMod.LOGGER.error("Failed to replay session log {}", SESSIONS_WAL_PATH, e);
         }
+
+        // Gson bypasses constructors/field initializers via Unsafe, so transient
+        // fields load as JVM defaults (ticksUntilKick=0 not -1, ipLocation=null).
+        // Reset each to safe defaults before publishing to avoid instant-kick + NPE
+        // on the first tick after restart. Also guard originalMode against null
+        // (missing-field deserialization) so liftLockdown can't NPE later.
+        loaded.values().removeIf(Objects::isNull);
+        loaded.values().forEach(ps -> {
+            if (ps.originalMode == null)
+                ps.originalMode = GameType.SURVIVAL;
+            ps.resetLockdownTimer();
+        });
+        SESSIONS.putAll(loaded);
+
+        // Fold the replayed log into a fresh checkpoint so the next boot starts clean.
+        if (replayed > 0)
+            SAVE_EXECUTOR.submit(AuthStorage::saveSessionsToFile);
     }
 
-    public static void saveSessionsToFile() {
-        try (Writer w = new FileWriter(SESSIONS_FILE)) {
-            GSON.toJson(SESSIONS, w);
+    // Checkpoint: compact JSON of every session, written crash-safely (temp + fsync +
+    // rename), after which the WAL's records are redundant and it is truncated.
+    // Must run on SAVE_EXECUTOR, or after it has shut down.
+    public static synchronized void saveSessionsToFile() {
+        long start = System.nanoTime();
+        try {
+            AppendLog.writeAtomically(SESSIONS_PATH, GSON.toJson(SESSIONS).getBytes(StandardCharsets.UTF_8));
+            SESSIONS_WAL.truncate();
+            sessionWalRecords = 0;
         } catch (IOException e) {
-            PasswordMod.LOGGER.error("Failed to save sessions to {}", SESSIONS_FILE, e);
+            PasswordMod.LOGGER.error("Failed to save sessions to {}", SESSIONS_PATH, e);
         }
+        SESSION_CHECKPOINT_TIME.record(System.nanoTime() - start);
     }
 
-    public static void saveSessionsToFileAsync() {
-        SAVE_EXECUTOR.submit(AuthStorage::saveSessionsToFile);
+    /** Tasks waiting on SAVE_EXECUTOR (not counting the one running). */
+    public static int saveQueueDepth() {
+        return SAVE_EXECUTOR.getQueue().size();
     }
 
-    // Submit + await: serializes with other SAVE_EXECUTOR writes so two threads can't both
-    // truncate-and-write the same file. Callers get a happens-before guarantee that the
-    // session is on disk before this method returns.
-    public static void saveSessionsToFileBlocking() {
+    private record PendingRecord(String record, CompletableFuture<Void> durable) {
+    }
+
+    // One small record per change, so save cost no longer grows with session count.
+    // `durable` (nullable) completes once the record has been fsync'd.
+    private static void enqueueSessionRecord(String record, CompletableFuture<Void> durable) {
+        SESSION_RECORD_QUEUE.add(new PendingRecord(record, durable));
+        if (sessionFlushScheduled.compareAndSet(false, true)) {
+            try {
+                SAVE_EXECUTOR.submit(AuthStorage::flushSessionRecords);
+            } catch (RejectedExecutionException e) {
+                // Shutting down — write it inline so a blocking caller can't hang.
+                flushSessionRecords();
+            }
+        }
+    }
+
+    // Runs on SAVE_EXECUTOR (or inline once it has shut down). Checkpoints once enough
+    // records have piled up.
+    private static synchronized void flushSessionRecords() {
+        // Clear the flag before draining so a record enqueued after the drain schedules
+        // its own flush instead of being stranded.
+        sessionFlushScheduled.set(false);
+        List<PendingRecord> batch = new ArrayList<>();
+        for (PendingRecord r; (r = SESSION_RECORD_QUEUE.poll()) != null;)
+            batch.add(r);
+        if (batch.isEmpty())
+            return;
+
+        List<String> records = new ArrayList<>(batch.size());
+        for (PendingRecord r : batch)
+            records.add(r.record());
         try {
-            SAVE_EXECUTOR.submit(AuthStorage::saveSessionsToFile).get();
+            long start = System.nanoTime();
+            SESSIONS_WAL.append(records);
+            SESSION_LOG_WRITE_TIME.record(System.nanoTime() - start);
+            sessionWalRecords += records.size();
+            if (sessionWalRecords >= SESSION_CHECKPOINT_RECORDS)
+                saveSessionsToFile();
+        } catch (IOException e) {
+            PasswordMod.LOGGER.error("Failed to append to session log {}", SESSIONS_WAL_PATH, e);
+        } finally {
+            // Complete even on failure (an unchecked one included): waiters only need
+            // ordering, and the error is logged.
+            for (PendingRecord r : batch) {
+                if (r.durable() != null)
+                    r.durable().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Blocks until every session created so far is fsync'd, so all of a tick's joins
+     * share one wait (and usually one fsync). Called at the end of each tick and before
+     * vanilla saves a player. Gives up after SESSION_SAVE_TIMEOUT_SECONDS rather than
+     * hang the server on a stuck disk, keeping whatever hasn't landed for the next
+     * call. Server thread; returns at once when no player joined.
+     */
+    public static void awaitSessionRecords() {
+        if (UNSYNCED_CREATES.isEmpty())
+            return;
+        boolean wait = !sessionLogStalled;
+        long start = System.nanoTime();
+        long deadline = start + (wait ? TimeUnit.SECONDS.toNanos(SESSION_SAVE_TIMEOUT_SECONDS) : 0);
+        int sessions = UNSYNCED_CREATES.size();
+        Iterator<CompletableFuture<Void>> pending = UNSYNCED_CREATES.values().iterator();
+        try {
+            while (pending.hasNext()) {
+                pending.next().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                pending.remove();
+            }
+            sessionLogStalled = false;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } catch (ExecutionException e) {
+            pending.remove(); // no record to wait for; flushSessionRecords logged why
             PasswordMod.LOGGER.error("Failed sync save of sessions", e);
+        } catch (TimeoutException e) {
+            if (!sessionLogStalled)
+                PasswordMod.LOGGER.error("Session records for {} players not on disk after {} s ({} queued saves); "
+                        + "their playerdata won't be saved until they are",
+                        UNSYNCED_CREATES.size(), SESSION_SAVE_TIMEOUT_SECONDS, saveQueueDepth());
+            sessionLogStalled = true;
         }
+        if (!wait)
+            return;
+        long waited = System.nanoTime() - start;
+        SESSION_SAVE_WAIT.record(waited);
+        if (waited > SLOW_SESSION_WAIT_NANOS)
+            PasswordMod.LOGGER.warn("Saving {} new sessions blocked the server thread for {} ms ({})",
+                    sessions, TimeUnit.NANOSECONDS.toMillis(waited), SESSION_SAVE_WAIT.summary());
+    }
+
+    /**
+     * awaitSessionRecords, then whether the player's session record, if they have a new
+     * one, is on disk. Vanilla must not write a locked player's playerdata before that,
+     * or a crash leaves them in lockdown state with no session to restore them from.
+     */
+    public static boolean isSessionDurable(UUID uuid) {
+        awaitSessionRecords();
+        return !UNSYNCED_CREATES.containsKey(uuid);
+    }
+
+    private static String createRecord(UUID uuid, PlayerSession ps) {
+        return "+" + uuid + " " + GSON.toJson(ps);
+    }
+
+    private static String removeRecord(UUID uuid) {
+        return "-" + uuid;
     }
 
     // --------- Shutdown ---------
 
     public static void shutdown() {
+        ConfigWatcher.stop();
+        AuthMetrics.stopEndpoint();
+
         // Let queued async saves drain, then do a final sync save as a safety net
         // so anything queued during shutdown still lands on disk.
         SAVE_EXECUTOR.shutdown();
@@ -325,5 +919,7 @@ public class AuthStorage {
             Thread.currentThread().interrupt();
         }
         saveSessionsToFile();
+        SESSIONS_WAL.close();
+        WHITELIST_JOURNAL.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package net.bearcott.passwordmod;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Optional (watch_config=true) background reload of the properties file when it's
+ * saved. Runs on its own daemon thread; AuthStorage.reloadConfig is thread-safe.
+ */
+public class ConfigWatcher {
+    // Editors save in several steps (truncate + write, or write temp + rename); wait
+    // for the burst of events to settle before reading the file.
+    private static final long SETTLE_MS = 500;
+
+    private static WatchService watcher; // guarded by ConfigWatcher.class
+
+    public static synchronized void start(Path file) {
+        if (watcher != null)
+            return;
+        try {
+            WatchService ws = file.getFileSystem().newWatchService();
+            file.toAbsolutePath().getParent().register(ws,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watcher = ws;
+            Thread t = new Thread(() -> run(ws, file.getFileName()), "one-password-auth/config-watch");
+            t.setDaemon(true);
+            t.start();
+            PasswordMod.LOGGER.info("Watching {} for changes", file);
+        } catch (IOException e) {
+            PasswordMod.LOGGER.error("Failed to watch {} for changes; use /auth reload instead", file, e);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (watcher == null)
+            return;
+        try {
+            watcher.close(); // wakes the thread with ClosedWatchServiceException
+        } catch (IOException ignored) {
+        }
+        watcher = null;
+    }
+
+    private static void run(WatchService ws, Path fileName) {
+        try {
+            while (true) {
+                if (!touches(ws.take(), fileName))
+                    continue;
+
+                Thread.sleep(SETTLE_MS);
+                WatchKey more;
+                while ((more = ws.poll()) != null)
+                    touches(more, fileName);
+
+                String problem = AuthStorage.reloadConfig();
+                if (problem != null)
+                    PasswordMod.LOGGER.warn("Config change not applied: {}", problem);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // stop() closed the service, or the JVM is going down.
+        }
+    }
+
+    // Drains the key's events and re-arms it; true if any were for our file.
+    private static boolean touches(WatchKey key, Path fileName) {
+        boolean hit = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context()))
+                hit = true;
+        }
+        key.reset();
+        return hit;
+    }
+}
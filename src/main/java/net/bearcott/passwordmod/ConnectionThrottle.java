@@ -0,0 +1,76 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.IpAddresses;
+import net.bearcott.passwordmod.util.TokenBucketTable;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.UUID;
+
+/**
+ * Connection admission by token bucket, consulted from PlayerList.canPlayerLogin —
+ * before a player entity, session or webhook exists. One bucket per IP, plus one per
+ * subnet (/24 for IPv4, /64 for IPv6) so a bot can't dodge the limit by rotating
+ * UUIDs or addresses within its allocation. Pairs already on the whitelist skip both.
+ */
+public class ConnectionThrottle {
+    private static final int STRIPES = 1024; // x8 slots, 64 KiB per table
+    private static final long IDLE_MILLIS = 10 * 60 * 1000;
+    private static final int SWEEP_INTERVAL_TICKS = 20 * 60;
+
+    private static final ThreadLocal<long[]> ADDR_SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static volatile TokenBucketTable perIp = new TokenBucketTable(STRIPES, 5, 10, IDLE_MILLIS);
+    private static volatile TokenBucketTable perSubnet = new TokenBucketTable(STRIPES, 20, 60, IDLE_MILLIS);
+
+    public static void configure(int ipBurst, int ipPerMinute, int subnetBurst, int subnetPerMinute) {
+        perIp = new TokenBucketTable(STRIPES, ipBurst, ipPerMinute, IDLE_MILLIS);
+        perSubnet = new TokenBucketTable(STRIPES, subnetBurst, subnetPerMinute, IDLE_MILLIS);
+    }
+
+    public static void register() {
+        // Idle buckets are reclaimed lazily on lookup too; the sweep just keeps their
+        // packed timestamps from ever wrapping.
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (server.getTickCount() % SWEEP_INTERVAL_TICKS == 0) {
+                perIp.sweep();
+                perSubnet.sweep();
+            }
+        });
+    }
+
+    /** False if this connection should be refused. Never blocks or allocates per call. */
+    public static boolean admit(SocketAddress address, UUID uuid) {
+        // Integrated-server (in-memory) connections have no IP to throttle.
+        if (!(address instanceof InetSocketAddress inet) || inet.getAddress() == null)
+            return true;
+
+        long[] addr = ADDR_SCRATCH.get();
+        IpAddresses.fromInetAddress(inet.getAddress(), addr);
+        if (AuthStorage.isWhitelisted(addr[0], addr[1], uuid))
+            return true;
+
+        if (!perIp.tryAcquire(addr[0], addr[1]))
+            return false;
+        IpAddresses.toSubnet(addr);
+        return perSubnet.tryAcquire(addr[0], addr[1]);
+    }
+
+    /** Whether this (address, uuid) pair is already whitelisted. */
+    public static boolean isWhitelisted(SocketAddress address, UUID uuid) {
+        if (!(address instanceof InetSocketAddress inet) || inet.getAddress() == null)
+            return false;
+        long[] addr = ADDR_SCRATCH.get();
+        IpAddresses.fromInetAddress(inet.getAddress(), addr);
+        return AuthStorage.isWhitelisted(addr[0], addr[1], uuid);
+    }
+
+    public static TokenBucketTable perIp() {
+        return perIp;
+    }
+
+    public static TokenBucketTable perSubnet() {
+        return perSubnet;
+    }
+}
@@ -0,0 +1,183 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.Cosmetics;
+import net.bearcott.passwordmod.util.Messages;
+import net.bearcott.passwordmod.util.Notifications;
+import net.bearcott.passwordmod.util.Notifications.Target;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.UUID;
+
+/**
+ * The per-player work of the END_SERVER_TICK handler for players in lockdown: whitelist
+ * and timeout checks, delayed kicks, reminders, holding them in place and re-asserting
+ * drifted state.
+ *
+ * The calls into the game go through {@link Players}, so the benchmarks run this same
+ * code with stand-in players (a ServerPlayer can't exist without a running server).
+ * Server thread only.
+ */
+public class LockdownTick {
+    static final int REMINDER_INTERVAL_TICKS = 80; // 4 seconds at 20 TPS
+    static final int DRIFT_SWEEP_INTERVAL_TICKS = 100; // fallback for changes the hooks can't see
+
+    /** The game side of the tick, for players of type P. */
+    public interface Players<P> {
+        /** The online player, or null once they're gone or disconnected. */
+        P find(UUID uuid);
+
+        String ipAddress(P player);
+
+        boolean isAlive(P player);
+
+        void liftLockdown(P player, AuthStorage.PlayerSession session);
+
+        void applyLockdown(P player);
+
+        /** Kicks a player who took too long to log in, and tells the public webhook. */
+        void timeOut(P player);
+
+        void kickIfTickDelayed(P player, AuthStorage.PlayerSession session);
+
+        void sendReminder(P player);
+
+        void restrictMovement(P player, AuthStorage.PlayerSession session);
+
+        void reassertIfDrifted(P player);
+    }
+
+    /** Runs one tick for every player in PendingPlayerRegistry. */
+    public static <P> void run(Players<P> players, int tickCount) {
+        int count = PendingPlayerRegistry.snapshot();
+        UUID[] locked = PendingPlayerRegistry.tickBuffer();
+        long timeoutMillis = (long) AuthStorage.config().timeoutSec() * 1000;
+
+        for (int i = 0; i < count; i++) {
+            UUID uuid = locked[i];
+            locked[i] = null;
+            tickPlayer(players, uuid, tickCount, timeoutMillis);
+        }
+    }
+
+    /** The game calls for real ServerPlayers on {@code server}; make one per server and reuse it. */
+    public static Players<ServerPlayer> players(MinecraftServer server) {
+        return new ServerPlayers(server);
+    }
+
+    static int reminderPhase(UUID uuid) {
+        return Math.floorMod(uuid.hashCode(), REMINDER_INTERVAL_TICKS);
+    }
+
+    // --------- Internals ---------
+
+    private static <P> void tickPlayer(Players<P> players, UUID uuid, int tickCount, long timeoutMillis) {
+        // Resolve by UUID every tick: respawn replaces the ServerPlayer instance,
+        // so holding the entity itself could leave us teleporting a stale copy.
+        P player = players.find(uuid);
+
+        // 1.21.x safety: skip players already gone
+        if (player == null) {
+            PendingPlayerRegistry.remove(uuid);
+            return;
+        }
+
+        AuthStorage.PlayerSession session = AuthStorage.getPendingSession(uuid);
+
+        // If are whitelisted, lift their lockdown and skip the rest
+        if (AuthStorage.isWhitelisted(players.ipAddress(player), uuid)) {
+            // If they somehow still have the lockdown, lift it
+            if (session != null)
+                players.liftLockdown(player, session);
+            else
+                PendingPlayerRegistry.remove(uuid);
+            return;
+        }
+
+        // Registered but the session vanished (e.g. removed externally) — re-apply
+        if (session == null) {
+            if (players.isAlive(player))
+                players.applyLockdown(player);
+            return;
+        }
+
+        // kick if they exceed the timeout limit since joining or last attempt
+        if (System.currentTimeMillis() - session.lastAttemptTime > timeoutMillis) {
+            players.timeOut(player);
+            return;
+        }
+
+        // handle ticked kicks (for visual effects)
+        players.kickIfTickDelayed(player, session);
+
+        // Periodic visual reminders, each player on their own phase of the
+        // interval so a crowd of locked players doesn't all get them on one tick
+        if ((tickCount + reminderPhase(uuid)) % REMINDER_INTERVAL_TICKS == 0)
+            players.sendReminder(player);
+
+        // hold all pending players in place
+        players.restrictMovement(player, session);
+
+        // re-assert lockdown if external state changed it: the game mode /
+        // invulnerability / effect hooks flag it as it happens, and a slow sweep
+        // catches anything that bypasses those setters
+        if (PendingPlayerRegistry.takeDrifted(uuid) || tickCount % DRIFT_SWEEP_INTERVAL_TICKS == 0)
+            players.reassertIfDrifted(player);
+    }
+
+    private record ServerPlayers(MinecraftServer server) implements Players<ServerPlayer> {
+        @Override
+        public ServerPlayer find(UUID uuid) {
+            ServerPlayer player = server.getPlayerList().getPlayer(uuid);
+            return player == null || player.hasDisconnected() ? null : player;
+        }
+
+        @Override
+        public String ipAddress(ServerPlayer player) {
+            return PlayerLockdownHandlers.ipAddress(player);
+        }
+
+        @Override
+        public boolean isAlive(ServerPlayer player) {
+            return player.isAlive();
+        }
+
+        @Override
+        public void liftLockdown(ServerPlayer player, AuthStorage.PlayerSession session) {
+            PlayerLockdownHandlers.liftLockdown(player, session);
+        }
+
+        @Override
+        public void applyLockdown(ServerPlayer player) {
+            PlayerLockdownHandlers.applyLockdown(player);
+        }
+
+        @Override
+        public void timeOut(ServerPlayer player) {
+            player.connection.disconnect(Component.literal(Messages.KICK_TIMEOUT));
+            Notifications.broadcast(String.format(Messages.WEBHOOK_TIMEOUT_FMT, player.getScoreboardName()),
+                    null, Target.PUBLIC, PasswordMod.WORKER_POOL);
+        }
+
+        @Override
+        public void kickIfTickDelayed(ServerPlayer player, AuthStorage.PlayerSession session) {
+            session.kickPlayerIfTickDelayed(player);
+        }
+
+        @Override
+        public void sendReminder(ServerPlayer player) {
+            Cosmetics.sendAuthTitle(player);
+        }
+
+        @Override
+        public void restrictMovement(ServerPlayer player, AuthStorage.PlayerSession session) {
+            PlayerLockdownHandlers.restrictMovement(player, session);
+        }
+
+        @Override
+        public void reassertIfDrifted(ServerPlayer player) {
+            PlayerLockdownHandlers.reassertIfDrifted(player);
+        }
+    }
+}
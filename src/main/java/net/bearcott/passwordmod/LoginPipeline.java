@@ -0,0 +1,116 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.LatencyStat;
+import net.bearcott.passwordmod.util.PasswordHash;
+import net.bearcott.passwordmod.util.TaskScheduler;
+import net.bearcott.passwordmod.util.TaskScheduler.Priority;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs /login verification off the server thread. The command snapshots the attempt
+ * (who, what they typed, what it's checked against) and hands it to the verifier pool;
+ * the verdict comes back through {@link MinecraftServer#execute}, where every result
+ * that arrived since the last hand-off is applied in one batch. All game-state changes
+ * (lifting lockdown, the kick timer, whitelisting) therefore stay on the main thread,
+ * and a slow verify can never hold up a tick.
+ *
+ * The verifier pool is small and its queue short on purpose: each verify is a full
+ * KDF run, so a brute-force flood gets "try again" replies instead of turning into
+ * unbounded CPU work.
+ */
+public class LoginPipeline {
+    private record Attempt(UUID uuid, String input, PasswordHash expected, long submittedAt) {
+    }
+
+    private record Result(UUID uuid, String input, boolean success, long submittedAt) {
+    }
+
+    public static final LatencyStat VERIFY_LATENCY = new LatencyStat(); // submit → verdict applied
+
+    private static volatile TaskScheduler verifier = new TaskScheduler("one-password-auth/verify", 2, 32);
+
+    // Server-thread only: players with an attempt in the pipeline. One at a time each,
+    // so a queued attempt can't be applied against a session that already moved on.
+    private static final Set<UUID> IN_FLIGHT = new HashSet<>();
+
+    private static final Queue<Result> RESULTS = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean APPLY_SCHEDULED = new AtomicBoolean();
+
+    /**
+     * Server thread. Returns false if the attempt wasn't accepted (one is already in
+     * flight for this player, or the verifier queue is full).
+     */
+    public static boolean submit(MinecraftServer server, ServerPlayer player, String input, PasswordHash expected,
+            TaskScheduler workerPool) {
+        UUID uuid = player.getUUID();
+        if (!IN_FLIGHT.add(uuid))
+            return false;
+
+        Attempt attempt = new Attempt(uuid, input, expected, System.nanoTime());
+        boolean queued = verifier.execute(Priority.AUTH, () -> {
+            boolean success = false;
+            try {
+                success = attempt.expected().verify(attempt.input());
+            } catch (RuntimeException e) {
+                PasswordMod.LOGGER.error("Password check for {} failed; counting it as a wrong password",
+                        attempt.uuid(), e);
+            } finally {
+                // Always post a verdict, or the player stays in IN_FLIGHT and every
+                // later /login is refused.
+                RESULTS.add(new Result(attempt.uuid(), attempt.input(), success, attempt.submittedAt()));
+                // One hand-off per batch: later results ride along with the pending one.
+                if (APPLY_SCHEDULED.compareAndSet(false, true))
+                    server.execute(() -> applyResults(server, workerPool));
+            }
+        });
+        if (!queued)
+            IN_FLIGHT.remove(uuid);
+        return queued;
+    }
+
+    public static boolean isInFlight(UUID uuid) {
+        return IN_FLIGHT.contains(uuid);
+    }
+
+    /** Replaces the verifier pool; attempts already queued on the old one still finish. */
+    public static void configure(int threads, int queueCapacity) {
+        TaskScheduler previous = verifier;
+        verifier = new TaskScheduler("one-password-auth/verify", threads, queueCapacity);
+        previous.shutdown();
+    }
+
+    public static TaskScheduler verifier() {
+        return verifier;
+    }
+
+    // Server thread.
+    private static void applyResults(MinecraftServer server, TaskScheduler workerPool) {
+        // Clear first: a result added after this still sees the flag down and schedules
+        // its own hand-off, so none is stranded.
+        APPLY_SCHEDULED.set(false);
+
+        Result result;
+        while ((result = RESULTS.poll()) != null) {
+            IN_FLIGHT.remove(result.uuid());
+            VERIFY_LATENCY.record(System.nanoTime() - result.submittedAt());
+
+            // The player may have left (or been lifted by another path) meanwhile.
+            ServerPlayer player = server.getPlayerList().getPlayer(result.uuid());
+            if (player == null || player.hasDisconnected())
+                continue;
+            AuthStorage.PlayerSession session = AuthStorage.getPendingSession(result.uuid());
+            if (session == null)
+                continue;
+
+            PlayerLockdownHandlers.applyLoginResult(player, session, result.input(), result.success(), workerPool);
+        }
+    }
+}
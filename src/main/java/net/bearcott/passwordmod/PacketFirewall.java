@@ -0,0 +1,113 @@
+package net.bearcott.passwordmod;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.common.ServerboundClientInformationPacket;
+import net.minecraft.network.protocol.common.ServerboundCustomPayloadPacket;
+import net.minecraft.network.protocol.common.ServerboundKeepAlivePacket;
+import net.minecraft.network.protocol.common.ServerboundPongPacket;
+import net.minecraft.network.protocol.game.ServerboundAcceptTeleportationPacket;
+import net.minecraft.network.protocol.game.ServerboundChatAckPacket;
+import net.minecraft.network.protocol.game.ServerboundChatCommandPacket;
+import net.minecraft.network.protocol.game.ServerboundChatCommandSignedPacket;
+import net.minecraft.network.protocol.game.ServerboundChatSessionUpdatePacket;
+import net.minecraft.network.protocol.game.ServerboundClientTickEndPacket;
+import net.minecraft.network.protocol.game.ServerboundConfigurationAcknowledgedPacket;
+import net.minecraft.network.protocol.game.ServerboundPlayerLoadedPacket;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serverbound packet allowlist for players with a pending session, applied on the
+ * Netty thread (see ConnectionMixin) so movement, interaction, container clicks and
+ * chat spam from a hacked client are dropped before they're ever scheduled onto the
+ * server thread — rather than handled there and undone by the next tick's lockdown.
+ *
+ * Only play-phase packets are filtered; the configuration phase has its own listener
+ * and is left alone.
+ */
+public class PacketFirewall {
+    private static final int SWEEP_INTERVAL_TICKS = 20 * 60;
+
+    // Connection upkeep and protocol bookkeeping a locked client still has to send.
+    // Teleport acks matter because restrictMovement teleports them; chat acks and the
+    // chat session keep signed /login commands from desyncing.
+    private static final Set<Class<?>> ALWAYS_ALLOWED = Set.of(
+            ServerboundKeepAlivePacket.class,
+            ServerboundPongPacket.class,
+            ServerboundClientInformationPacket.class,
+            ServerboundConfigurationAcknowledgedPacket.class,
+            ServerboundAcceptTeleportationPacket.class,
+            ServerboundPlayerLoadedPacket.class,
+            ServerboundClientTickEndPacket.class,
+            ServerboundChatAckPacket.class,
+            ServerboundChatSessionUpdatePacket.class);
+
+    // Custom payloads are any mod's channel, handled wherever that mod likes; a locked
+    // client only gets the client brand and channel (un)registration through.
+    private static final Set<String> ALLOWED_PAYLOAD_CHANNELS = Set.of(
+            "minecraft:brand",
+            "minecraft:register",
+            "minecraft:unregister");
+
+    private static final Map<UUID, LongAdder> DROPPED = new ConcurrentHashMap<>();
+    private static final LongAdder DROPPED_TOTAL = new LongAdder();
+
+    public static void register() {
+        // A packet read just before the disconnect can still be counted after DISCONNECT
+        // released its player; the sweep drops counters nobody online owns.
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (server.getTickCount() % SWEEP_INTERVAL_TICKS == 0 && !DROPPED.isEmpty())
+                DROPPED.keySet().removeIf(uuid -> server.getPlayerList().getPlayer(uuid) == null);
+        });
+    }
+
+    /** Netty thread. False if {@code packet} from {@code player} must be dropped. */
+    public static boolean allow(ServerPlayer player, Packet<?> packet) {
+        // ConcurrentHashMap lookup; authed players leave here immediately.
+        if (player == null || !AuthStorage.hasPendingSession(player.getUUID()))
+            return true;
+        if (ALWAYS_ALLOWED.contains(packet.getClass()))
+            return true;
+        if (packet instanceof ServerboundCustomPayloadPacket p
+                && ALLOWED_PAYLOAD_CHANNELS.contains(p.payload().type().id().toString()))
+            return true;
+        if (packet instanceof ServerboundChatCommandPacket p && isLoginCommand(p.command()))
+            return true;
+        if (packet instanceof ServerboundChatCommandSignedPacket p && isLoginCommand(p.command()))
+            return true;
+
+        UUID uuid = player.getUUID();
+        DROPPED.computeIfAbsent(uuid, u -> new LongAdder()).increment();
+        DROPPED_TOTAL.increment();
+        // The player may have logged in or left (and been released) since the check at
+        // the top; don't leave a counter behind for them.
+        if (!AuthStorage.hasPendingSession(uuid) || player.hasDisconnected())
+            DROPPED.remove(uuid);
+        return false;
+    }
+
+    /** Forgets the player's counter and returns how many packets were dropped. */
+    public static long release(UUID uuid) {
+        LongAdder count = DROPPED.remove(uuid);
+        return count == null ? 0 : count.sum();
+    }
+
+    public static long dropped(UUID uuid) {
+        LongAdder count = DROPPED.get(uuid);
+        return count == null ? 0 : count.sum();
+    }
+
+    public static long droppedTotal() {
+        return DROPPED_TOTAL.sum();
+    }
+
+    private static boolean isLoginCommand(String command) {
+        return command.equals("login") || command.startsWith("login ");
+    }
+}
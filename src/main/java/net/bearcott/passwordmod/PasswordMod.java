@@ -1,11 +1,13 @@
 package net.bearcott.passwordmod;
 
-import net.bearcott.passwordmod.util.Cosmetics;
+import net.bearcott.passwordmod.util.AdvancementsLogger;
 import net.bearcott.passwordmod.util.Helpers;
+import net.bearcott.passwordmod.util.LatencyStat;
 import net.bearcott.passwordmod.util.Messages;
 import net.bearcott.passwordmod.util.Notifications;
 import net.bearcott.passwordmod.util.Notifications.Target;
 import net.bearcott.passwordmod.util.ServerStatusLogger;
+import net.bearcott.passwordmod.util.TaskScheduler;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
@@ -18,12 +20,7 @@ import net.minecraft.server.level.ServerPlayer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import static net.minecraft.commands.Commands.argument;
@@ -32,42 +29,88 @@ import static net.minecraft.commands.Commands.literal;
 public class PasswordMod implements ModInitializer {
     public static final Logger LOGGER = LoggerFactory.getLogger("Auth");
     public static final int MAX_ATTEMPTS = 7;
-    private static final int REMINDER_INTERVAL_TICKS = 80; // 4 seconds at 20 TPS
+    private static final int WHITELIST_SWEEP_INTERVAL_TICKS = 1200; // 1 minute at 20 TPS
     private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final int WORKER_THREADS = 4;
+    private static final int WORKER_QUEUE_CAPACITY = 1024;
+
+    // The lockdown tick's view of the running server, made once when it starts.
+    // Server thread only.
+    private static LockdownTick.Players<ServerPlayer> lockdownPlayers;
+
+    // Bounded and prioritized: a join flood queues (and eventually sheds) public-feed
+    // work instead of spawning a thread per task.
+    public static final TaskScheduler WORKER_POOL = new TaskScheduler("one-password-auth/worker",
+            WORKER_THREADS, WORKER_QUEUE_CAPACITY);
+
+    // Only ticks with locked players are timed; the empty fast path would drown them out.
+    public static final LatencyStat TICK_TIME = new LatencyStat();
+
+    // Worker tasks can still enqueue webhooks, so drain the pool first, then the
+    // webhook queues — both against one deadline so a slow Discord can't stretch the
+    // shutdown past SHUTDOWN_TIMEOUT_SECONDS.
+    private static void drainBackgroundWork() {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT_SECONDS);
+        try {
+            WORKER_POOL.shutdown();
+            boolean workersDone = WORKER_POOL.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            LOGGER.info("Shutdown: worker pool {} in {} ms ({})", workersDone ? "drained" : "timed out",
+                    elapsedMillis(start), WORKER_POOL.summary());
+
+            long webhooksStart = System.nanoTime();
+            boolean webhooksDone = Notifications.drain(deadline);
+            LOGGER.info("Shutdown: webhook queues {} in {} ms", webhooksDone ? "drained" : "timed out",
+                    elapsedMillis(webhooksStart));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-    public static final ExecutorService WORKER_POOL = Executors.newCachedThreadPool(namedDaemonFactory());
-
-    private static ThreadFactory namedDaemonFactory() {
-        return r -> {
-            Thread t = new Thread(r, "one-password-auth/worker");
-            t.setDaemon(true);
-            return t;
-        };
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
     @Override
     public void onInitialize() {
         AuthStorage.load();
+        AuthMetrics.register();
 
         ServerStatusLogger.register();
+        AdvancementsLogger.register();
+        ConnectionThrottle.register();
+        PacketFirewall.register();
         PlayerLockdownHandlers.registerGuards();
 
+        // Whitelist aging reads a wheel bucket or so an hour; checking once a minute
+        // keeps expiry prompt without touching the whitelist on every tick.
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (server.getTickCount() % WHITELIST_SWEEP_INTERVAL_TICKS == 0)
+                AuthStorage.sweepWhitelist();
+        });
+
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> lockdownPlayers = LockdownTick.players(server));
+
         // SERVER_STOPPING: persist everything before players get kicked.
-        ServerLifecycleEvents.SERVER_STOPPING.register(server -> AuthStorage.shutdown());
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            long start = System.nanoTime();
+            AuthStorage.shutdown();
+            LOGGER.info("Shutdown: persistence flushed in {} ms", elapsedMillis(start));
+        });
 
         // SERVER_STOPPED: DISCONNECT events have fired by now. Safe to tear down WORKER_POOL.
+        // Drop the adapter too, so a stopped integrated server isn't kept alive.
         ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
-            WORKER_POOL.shutdown();
-            try {
-                WORKER_POOL.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            lockdownPlayers = null;
+            drainBackgroundWork();
         });
 
         ServerPlayConnectionEvents.JOIN.register(
                 (handler, sender, server) -> PlayerLockdownHandlers.handlePlayerJoin(handler.getPlayer(), WORKER_POOL));
 
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess,
+                environment) -> AuthCommands.register(dispatcher));
+
         CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess,
                 environment) -> dispatcher.register(literal("login")
                         .then(argument("password", MessageArgument.message())
@@ -84,65 +127,34 @@ public class PasswordMod implements ModInitializer {
                                         return 0;
                                     }
 
-                                    // handle the login attempt asynchronously to avoid blocking the main server
-                                    // thread
-                                    PlayerLockdownHandlers.handleLoginAttempt(player,
+                                    // verification runs on the worker pool; the result is applied on
+                                    // the main thread in a later batch, so this never blocks a tick
+                                    PlayerLockdownHandlers.handleLoginAttempt(context.getSource().getServer(), player,
                                             MessageArgument.getMessage(context, "password").getString(), WORKER_POOL);
                                     return 1;
                                 }))));
 
         ServerTickEvents.END_SERVER_TICK.register(server -> {
-            List<ServerPlayer> players = new ArrayList<>(server.getPlayerList().getPlayers());
-
-            for (ServerPlayer player : players) {
-                // 1.21.x safety: skip players already gone
-                if (player.hasDisconnected())
-                    continue;
-
-                AuthStorage.PlayerSession session = AuthStorage.getPendingSession(player.getUUID());
-
-                // If are whitelisted, lift their lockdown and skip the rest
-                if (AuthStorage.isWhitelisted(player.getIpAddress(), player.getUUID())) {
-                    // If they somehow still have the lockdown, lift it
-                    if (session != null)
-                        PlayerLockdownHandlers.liftLockdown(player, session);
-                    continue;
-                }
-
-                // Logic for players in lockdown
-                if (session != null) {
-                    // kick if they exceed the timeout limit since joining or last attempt
-                    if (System.currentTimeMillis() - session.lastAttemptTime > (long) AuthStorage.timeoutSec * 1000) {
-                        player.connection.disconnect(Component.literal(Messages.KICK_TIMEOUT));
-
-                        Notifications.broadcast(
-                                String.format(Messages.WEBHOOK_TIMEOUT_FMT, player.getScoreboardName()),
-                                null, Target.PUBLIC, WORKER_POOL);
-                        continue;
-                    }
-
-                    // handle ticked kicks (for visual effects)
-                    session.kickPlayerIfTickDelayed(player);
-
-                    // Periodic visual reminders
-                    if (server.getTickCount() % REMINDER_INTERVAL_TICKS == 0)
-                        Cosmetics.sendAuthTitle(player);
-
-                    // hold all pending players in place
-                    PlayerLockdownHandlers.restrictMovement(player, session);
-
-                    // re-assert lockdown if external state changed it (drift check)
-                    PlayerLockdownHandlers.reassertIfDrifted(player);
-                }
-
-                // If they have no session at all and aren't whitelisted, apply lockdown
-                if (session == null && player.isAlive()) {
-                    PlayerLockdownHandlers.applyLockdown(player);
-                }
-            }
+            // This tick's joins wrote their sessions asynchronously; make them durable
+            // (one wait for all of them) before the next tick acts on them.
+            AuthStorage.awaitSessionRecords();
+
+            // Only locked players need per-tick work; on a normal server this is empty
+            // and the handler returns without touching the player list or allocating.
+            if (PendingPlayerRegistry.isEmpty())
+                return;
+
+            long tickStart = System.nanoTime();
+            LockdownTick.run(lockdownPlayers, server.getTickCount());
+            TICK_TIME.record(System.nanoTime() - tickStart);
         });
 
         ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            // Drop from the tick registry unconditionally (even during shutdown). The
+            // session itself stays persisted so the player is re-locked on rejoin.
+            PendingPlayerRegistry.remove(handler.getPlayer().getUUID());
+            PacketFirewall.release(handler.getPlayer().getUUID());
+
             // Suppress the per-player webhook storm when the server is shutting down —
             // the "server stopping" notification already tells admins everyone is leaving.
             // isRunning() flips to false at the start of stopServer(), exactly the window
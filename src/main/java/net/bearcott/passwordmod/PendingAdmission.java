@@ -0,0 +1,99 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.Messages;
+import net.minecraft.network.chat.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Caps how many unauthenticated players can sit in lockdown at once. Over the cap a
+ * connection is refused straight away with its place in line; players keep that
+ * place by reconnecting, and as slots free up they are let in strictly in arrival
+ * order. Whitelisted reconnects never reach this (see PlayerListMixin).
+ *
+ * Server-thread only: canPlayerLogin and the join handler both run on the main thread.
+ */
+public class PendingAdmission {
+    private static final long RESERVATION_MS = 30_000; // admitted, not yet joined
+    private static final long TICKET_TTL_MS = 60_000;  // queued, must reconnect within this
+    private static final int RETRY_HINT_SECONDS = 10;
+    private static final int MAX_WAITING = 256;
+
+    // Insertion order is arrival order; the value is when the player last tried.
+    private static final LinkedHashMap<UUID, Long> WAITING = new LinkedHashMap<>();
+    // Admitted by canPlayerLogin but not yet in PendingPlayerRegistry; value is expiry.
+    private static final Map<UUID, Long> RESERVED = new HashMap<>();
+
+    private static volatile int maxPending = 20; // 0 = unlimited
+
+    public static void configure(int max) {
+        maxPending = Math.max(0, max);
+    }
+
+    /** Null if {@code uuid} may connect now, else the disconnect reason. */
+    public static Component admit(UUID uuid) {
+        int max = maxPending;
+        if (max == 0 || PendingPlayerRegistry.contains(uuid) || RESERVED.containsKey(uuid))
+            return null;
+
+        long now = System.currentTimeMillis();
+        expire(now);
+
+        int free = max - PendingPlayerRegistry.size() - RESERVED.size();
+        int position = positionOf(uuid); // 0-based, -1 if not queued
+        // Only the first `free` players in line may take a slot; a newcomer only if
+        // everyone already waiting fits too.
+        if (free > 0 && (position >= 0 ? position < free : WAITING.size() < free)) {
+            WAITING.remove(uuid);
+            RESERVED.put(uuid, now + RESERVATION_MS);
+            return null;
+        }
+
+        if (position < 0) {
+            if (WAITING.size() >= MAX_WAITING)
+                return Component.literal(String.format(Messages.PENDING_FULL_FMT, RETRY_HINT_SECONDS));
+            position = WAITING.size();
+        }
+        WAITING.put(uuid, now); // refreshes the ticket; an existing key keeps its place
+        return Component.literal(String.format(Messages.PENDING_QUEUED_FMT, position + 1, RETRY_HINT_SECONDS));
+    }
+
+    /** The player made it in (locked or whitelisted); release their reservation. */
+    public static void joined(UUID uuid) {
+        RESERVED.remove(uuid);
+    }
+
+    public static int waiting() {
+        return WAITING.size();
+    }
+
+    public static int reserved() {
+        return RESERVED.size();
+    }
+
+    private static int positionOf(UUID uuid) {
+        if (!WAITING.containsKey(uuid))
+            return -1;
+        int i = 0;
+        for (UUID waiting : WAITING.keySet()) {
+            if (waiting.equals(uuid))
+                return i;
+            i++;
+        }
+        return -1;
+    }
+
+    private static void expire(long now) {
+        RESERVED.values().removeIf(expiry -> expiry <= now);
+        // Drop tickets of players who stopped retrying so they can't hold up the line.
+        Iterator<Long> it = WAITING.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next() > TICKET_TTL_MS)
+                it.remove();
+        }
+    }
+}
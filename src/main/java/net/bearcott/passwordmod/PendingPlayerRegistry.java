@@ -0,0 +1,80 @@
+package net.bearcott.passwordmod;
+
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * UUIDs of online players currently held in lockdown. Kept current by the join,
+ * applyLockdown, liftLockdown and disconnect paths so the tick handler only visits
+ * locked players instead of scanning the whole player list.
+ *
+ * Server-thread only — every mutation comes from a vanilla/Fabric callback that
+ * already runs on the main thread, so no synchronization is needed.
+ */
+public class PendingPlayerRegistry {
+    private static final Set<UUID> LOCKED = new LinkedHashSet<>();
+    // Locked players whose game mode / invulnerability / blindness was changed by
+    // something else since the last tick (set from the ServerPlayer/Entity mixins).
+    private static final Set<UUID> DRIFTED = new HashSet<>();
+
+    // Reused across ticks so iterating doesn't allocate, and so the tick body can
+    // lift/apply lockdown (mutating LOCKED) without a ConcurrentModificationException.
+    private static UUID[] tickBuffer = new UUID[16];
+
+    public static void add(ServerPlayer player) {
+        add(player.getUUID());
+    }
+
+    static void add(UUID uuid) {
+        LOCKED.add(uuid);
+    }
+
+    public static void remove(UUID uuid) {
+        LOCKED.remove(uuid);
+        DRIFTED.remove(uuid);
+    }
+
+    public static void markDrifted(UUID uuid) {
+        if (LOCKED.contains(uuid))
+            DRIFTED.add(uuid);
+    }
+
+    /** Returns whether {@code uuid} was marked drifted, clearing the mark. */
+    public static boolean takeDrifted(UUID uuid) {
+        return !DRIFTED.isEmpty() && DRIFTED.remove(uuid);
+    }
+
+    public static boolean contains(UUID uuid) {
+        return LOCKED.contains(uuid);
+    }
+
+    public static boolean isEmpty() {
+        return LOCKED.isEmpty();
+    }
+
+    public static int size() {
+        return LOCKED.size();
+    }
+
+    /**
+     * Copies the current members into the shared tick buffer and returns how many
+     * were copied. Callers read {@link #tickBuffer()} up to that count.
+     */
+    public static int snapshot() {
+        int n = LOCKED.size();
+        if (tickBuffer.length < n)
+            tickBuffer = new UUID[Math.max(n, tickBuffer.length * 2)];
+        int i = 0;
+        for (UUID uuid : LOCKED)
+            tickBuffer[i++] = uuid;
+        return n;
+    }
+
+    public static UUID[] tickBuffer() {
+        return tickBuffer;
+    }
+}
@@ -2,11 +2,15 @@ package net.bearcott.passwordmod;
 
 import net.bearcott.passwordmod.util.Cosmetics;
 import net.bearcott.passwordmod.util.Helpers;
+import net.bearcott.passwordmod.util.IpAddresses;
 import net.bearcott.passwordmod.util.Messages;
 import net.bearcott.passwordmod.util.Notifications;
 import net.bearcott.passwordmod.util.Notifications.Target;
+import net.bearcott.passwordmod.util.PasswordHash;
+import net.bearcott.passwordmod.util.TaskScheduler;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.players.NameAndId;
@@ -22,16 +26,16 @@ import net.minecraft.world.level.portal.TeleportTransition;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
 
 public class PlayerLockdownHandlers {
     private static final int BLINDNESS_DURATION_TICKS = 100_000;
     private static final int BLINDNESS_AMPLIFIER = 10;
     private static final int KICK_DELAY_TICKS = 5; // ~0.25s — enough for death/sound effects
 
-    public static void handlePlayerJoin(ServerPlayer player, ExecutorService workerPool) {
-        String ip = player.getIpAddress();
-        boolean isWhitelisted = AuthStorage.isWhitelisted(ip, player.getUUID());
+    public static void handlePlayerJoin(ServerPlayer player, TaskScheduler workerPool) {
+        String ip = ipAddress(player);
+        boolean isWhitelisted = AuthStorage.isWhitelistedOnJoin(ip, player.getUUID());
+        PendingAdmission.joined(player.getUUID());
 
         String msg = String.format(
                 isWhitelisted ? Messages.WEBHOOK_JOIN_WHITELISTED_FMT : Messages.WEBHOOK_JOIN_NEW_FMT,
@@ -43,11 +47,21 @@ public class PlayerLockdownHandlers {
 
             Cosmetics.chatLoginInstructions(player);
             Cosmetics.playSound(player, net.minecraft.sounds.SoundEvents.WITHER_SPAWN, 0.5f);
+        } else {
+            // Whitelisted but a session survived (e.g. crash between whitelist write and
+            // session removal). Lift it here — whitelisted players never enter the tick
+            // registry, so nothing else would restore their original state.
+            AuthStorage.PlayerSession session = AuthStorage.getPendingSession(player.getUUID());
+            if (session != null)
+                liftLockdown(player, session);
         }
     }
 
-    public static void handleLoginAttempt(ServerPlayer player, String input, ExecutorService workerPool) {
-        String ip = player.getIpAddress();
+    // Server thread: validates and snapshots the attempt; the verdict is applied later
+    // by applyLoginResult (see LoginPipeline).
+    public static void handleLoginAttempt(MinecraftServer server, ServerPlayer player, String input,
+            TaskScheduler workerPool) {
+        String ip = ipAddress(player);
         UUID uuid = player.getUUID();
 
         AuthStorage.PlayerSession session = AuthStorage.getPendingSession(uuid);
@@ -59,18 +73,28 @@ public class PlayerLockdownHandlers {
         // Refuse to authenticate against an empty or unset password. This guards against
         // a default/blank config letting any player "log in" with an empty string.
         // Check BEFORE touching lastAttemptTime so the timeout clock still runs out.
-        if (AuthStorage.serverPassword == null || AuthStorage.serverPassword.isEmpty()) {
+        PasswordHash expected = AuthStorage.config().passwordHash();
+        if (expected == null) {
             player.sendSystemMessage(Component.literal(Messages.FATAL_ERROR));
             return;
         }
 
         if (!session.didFetchLocation)
-            session.setIpLocationAsync(ip, workerPool);
+            session.setIpLocationAsync(ip);
+
+        if (!LoginPipeline.submit(server, player, input, expected, workerPool)) {
+            player.sendSystemMessage(Component.literal(Messages.RATE_LIMITED));
+            return;
+        }
 
         session.lastAttemptTime = System.currentTimeMillis();
+    }
 
-        if (input.equals(AuthStorage.serverPassword)) {
-            AuthStorage.whitelist(ip, uuid);
+    // Server thread, in a batch from LoginPipeline.
+    static void applyLoginResult(ServerPlayer player, AuthStorage.PlayerSession session, String input,
+            boolean success, TaskScheduler workerPool) {
+        if (success) {
+            AuthStorage.whitelist(ipAddress(player), player.getUUID());
             liftLockdown(player, session);
 
             Cosmetics.loginSuccessEffects(player);
@@ -139,8 +163,16 @@ public class PlayerLockdownHandlers {
             createPendingPlayerSession(player);
         }
 
+        PendingPlayerRegistry.add(player);
+
         // Idempotent: always re-assert so crash/desync or external state drift
         // (e.g. /gamemode, /effect clear) can't leave a session holder unlocked.
+        assertLockdownState(player);
+    }
+
+    // Just the player-state half of applyLockdown: unlike applyLockdown it leaves the
+    // session (attempt count, timeout clock) alone.
+    private static void assertLockdownState(ServerPlayer player) {
         player.setGameMode(GameType.SPECTATOR);
         player.setInvulnerable(true);
         player.addEffect(new MobEffectInstance(MobEffects.BLINDNESS,
@@ -173,17 +205,23 @@ public class PlayerLockdownHandlers {
         // remove any lockdown effects regardless of session, if this is called w/o a
         // session, things like game mode and op won't be restored
         AuthStorage.removePendingSession(uuid);
+        PendingPlayerRegistry.remove(uuid);
+        long dropped = PacketFirewall.release(uuid);
+        if (dropped > 0)
+            PasswordMod.LOGGER.info("Dropped {} packets from {} while locked", dropped, player.getScoreboardName());
         player.setInvulnerable(false);
         player.removeEffect(MobEffects.BLINDNESS);
 
         Cosmetics.resetTitle(player);
     }
 
+    // Called when a mixin hook saw the lockdown state change, and on the periodic
+    // safety sweep for anything the hooks can't see.
     public static void reassertIfDrifted(ServerPlayer player) {
         if (player.gameMode.getGameModeForPlayer() != GameType.SPECTATOR
                 || !player.isInvulnerable()
                 || !player.hasEffect(MobEffects.BLINDNESS)) {
-            applyLockdown(player);
+            assertLockdownState(player);
         }
     }
 
@@ -211,14 +249,24 @@ public class PlayerLockdownHandlers {
         return false;
     }
 
+    /**
+     * The address whitelist pairs are keyed on, taken from the connection's raw bytes
+     * so it matches what ConnectionThrottle sees before the player exists. Vanilla's
+     * getIpAddress() cuts IPv6 at the first ':'.
+     */
+    static String ipAddress(ServerPlayer player) {
+        String ip = IpAddresses.of(player.connection.getRemoteAddress());
+        return ip != null ? ip : player.getIpAddress();
+    }
+
     private static boolean isLocked(Player player) {
         if (!(player instanceof ServerPlayer sp))
             return false;
         UUID uuid = sp.getUUID();
         // Check session first — cheap ConcurrentHashMap containsKey. 99% of block-break
         // events are from authed players with no session; this short-circuits before the
-        // isWhitelisted call, which allocates a String for the pair key.
+        // isWhitelisted call, which has to parse the IP string.
         return AuthStorage.hasPendingSession(uuid)
-                && !AuthStorage.isWhitelisted(sp.getIpAddress(), uuid);
+                && !AuthStorage.isWhitelisted(ipAddress(sp), uuid);
     }
 }
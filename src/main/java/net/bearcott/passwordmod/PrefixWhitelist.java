@@ -0,0 +1,213 @@
+package net.bearcott.passwordmod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Address ranges a UUID is trusted from ("203.0.113.0/24", "2001:db8:1::/48"), for
+ * players whose address keeps changing inside their provider's block.
+ *
+ * Each UUID gets a binary radix trie over the 128-bit address (IPv4 as ::ffff:a.b.c.d,
+ * like everywhere else): a node is a prefix, its children the two halves below it, and
+ * runs of single-child nodes are collapsed so a node always branches or is an entry.
+ * A lookup follows the address's bits down from the root, so it costs at most one node
+ * per prefix bit — in practice two or three nodes — and allocates nothing.
+ *
+ * Entries carry a last-seen minute like WhitelistIndex pairs, and WhitelistAging reads
+ * them through {@link #seen(long, long, long, long)} with the range packed into one
+ * 128-bit key (see {@link #keyHi}).
+ *
+ * Not thread-safe; AuthStorage only touches it from the server thread (and from
+ * load() before the server starts).
+ */
+public class PrefixWhitelist implements WhitelistAging.Entries {
+    private static final int NOT_FOUND = WhitelistIndex.NOT_FOUND;
+
+    private static final class Node {
+        final long hi, lo; // the prefix, host bits zeroed
+        final int length;
+        int seen;          // NOT_FOUND for a branch that isn't itself an entry
+        Node zero, one;
+
+        Node(long hi, long lo, int length, int seen) {
+            this.hi = hi;
+            this.lo = lo;
+            this.length = length;
+            this.seen = seen;
+        }
+    }
+
+    private final Map<UUID, Node> roots = new HashMap<>();
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    /** Length of the longest prefix of this UUID containing the address, or -1. */
+    public int match(UUID uuid, long ipHi, long ipLo) {
+        if (roots.isEmpty())
+            return -1;
+        int best = -1;
+        for (Node n = roots.get(uuid); n != null && covers(n, ipHi, ipLo);
+                n = bit(ipHi, ipLo, n.length) == 0 ? n.zero : n.one) {
+            if (n.seen != NOT_FOUND)
+                best = n.length;
+            if (n.length == 128)
+                break;
+        }
+        return best;
+    }
+
+    /** Last-seen minute of the range (host bits zeroed), or NOT_FOUND. */
+    public int seen(UUID uuid, long hi, long lo, int length) {
+        Node n = find(roots.get(uuid), hi, lo, length);
+        return n == null ? NOT_FOUND : n.seen;
+    }
+
+    /** Sets the range's last-seen minute; returns the previous one, or NOT_FOUND. */
+    public int touch(UUID uuid, long hi, long lo, int length, int seenMinute) {
+        Node n = find(roots.get(uuid), hi, lo, length);
+        if (n == null)
+            return NOT_FOUND;
+        int previous = n.seen;
+        n.seen = seenMinute;
+        return previous;
+    }
+
+    /** Returns true if the range (host bits zeroed) was newly added. */
+    public boolean add(UUID uuid, long hi, long lo, int length, int seenMinute) {
+        if (find(roots.get(uuid), hi, lo, length) != null)
+            return false;
+        roots.put(uuid, insert(roots.get(uuid), hi, lo, length, seenMinute));
+        size++;
+        return true;
+    }
+
+    /** Returns true if the range was present. */
+    public boolean remove(UUID uuid, long hi, long lo, int length) {
+        Node root = roots.get(uuid);
+        if (find(root, hi, lo, length) == null)
+            return false;
+        root = remove(root, hi, lo, length);
+        if (root == null)
+            roots.remove(uuid);
+        else
+            roots.put(uuid, root);
+        size--;
+        return true;
+    }
+
+    // --------- Aging keys ---------
+
+    // A range packs into one 128-bit key as its prefix with a 1 bit right after it:
+    // the lowest set bit then spells out the length, so (uuid, key) fits WhitelistAging.
+
+    public static long keyHi(long hi, int length) {
+        return length < 64 ? hi | 1L << (63 - length) : hi;
+    }
+
+    public static long keyLo(long lo, int length) {
+        return length >= 64 ? lo | 1L << (127 - length) : lo;
+    }
+
+    public static int keyLength(long keyHi, long keyLo) {
+        return keyLo != 0 ? 127 - Long.numberOfTrailingZeros(keyLo) : 63 - Long.numberOfTrailingZeros(keyHi);
+    }
+
+    /** Clears the marker bit, leaving the prefix. */
+    public static long keyPrefix(long keyWord) {
+        return keyWord & (keyWord - 1);
+    }
+
+    @Override
+    public int seen(long uuidMsb, long uuidLsb, long keyHi, long keyLo) {
+        int length = keyLength(keyHi, keyLo);
+        long hi = length < 64 ? keyPrefix(keyHi) : keyHi;
+        long lo = length >= 64 ? keyPrefix(keyLo) : keyLo;
+        return seen(new UUID(uuidMsb, uuidLsb), hi, lo, length);
+    }
+
+    // --------- Internals ---------
+
+    private static Node find(Node n, long hi, long lo, int length) {
+        while (n != null && n.length <= length && covers(n, hi, lo)) {
+            if (n.length == length)
+                return n.seen == NOT_FOUND ? null : n;
+            n = bit(hi, lo, n.length) == 0 ? n.zero : n.one;
+        }
+        return null;
+    }
+
+    // Returns the subtree's new root. The range must not be present yet.
+    private static Node insert(Node n, long hi, long lo, int length, int seen) {
+        if (n == null)
+            return new Node(hi, lo, length, seen);
+        int common = commonLength(n.hi, n.lo, hi, lo, Math.min(n.length, length));
+        if (common == n.length) {
+            if (common == length) {
+                n.seen = seen; // an existing branch node becomes an entry
+                return n;
+            }
+            setChild(n, bit(hi, lo, common), insert(child(n, bit(hi, lo, common)), hi, lo, length, seen));
+            return n;
+        }
+        // The new range sits above n (it contains n) or beside it (they split at `common`).
+        Node top = common == length
+                ? new Node(hi, lo, length, seen)
+                : new Node(hi & hiMask(common), lo & loMask(common), common, NOT_FOUND);
+        setChild(top, bit(n.hi, n.lo, common), n);
+        if (common != length)
+            setChild(top, bit(hi, lo, common), new Node(hi, lo, length, seen));
+        return top;
+    }
+
+    // Returns the subtree's new root. The range must be present.
+    private static Node remove(Node n, long hi, long lo, int length) {
+        if (n.length == length)
+            n.seen = NOT_FOUND;
+        else if (bit(hi, lo, n.length) == 0)
+            n.zero = remove(n.zero, hi, lo, length);
+        else
+            n.one = remove(n.one, hi, lo, length);
+        // A node that's no longer an entry only stays while it still branches.
+        if (n.seen != NOT_FOUND || n.zero != null && n.one != null)
+            return n;
+        return n.zero != null ? n.zero : n.one;
+    }
+
+    private static Node child(Node n, int bit) {
+        return bit == 0 ? n.zero : n.one;
+    }
+
+    private static void setChild(Node n, int bit, Node child) {
+        if (bit == 0)
+            n.zero = child;
+        else
+            n.one = child;
+    }
+
+    private static boolean covers(Node n, long hi, long lo) {
+        return ((hi ^ n.hi) & hiMask(n.length)) == 0 && ((lo ^ n.lo) & loMask(n.length)) == 0;
+    }
+
+    // Bit `index` of the address, counting from the most significant.
+    private static int bit(long hi, long lo, int index) {
+        return (int) (index < 64 ? hi >>> (63 - index) : lo >>> (127 - index)) & 1;
+    }
+
+    private static int commonLength(long aHi, long aLo, long bHi, long bLo, int max) {
+        long diffHi = aHi ^ bHi;
+        int common = diffHi != 0 ? Long.numberOfLeadingZeros(diffHi) : 64 + Long.numberOfLeadingZeros(aLo ^ bLo);
+        return Math.min(common, max);
+    }
+
+    static long hiMask(int length) {
+        return length >= 64 ? -1L : length == 0 ? 0 : -1L << (64 - length);
+    }
+
+    static long loMask(int length) {
+        return length <= 64 ? 0 : -1L << (128 - length);
+    }
+}
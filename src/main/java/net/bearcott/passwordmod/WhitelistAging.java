@@ -0,0 +1,179 @@
+package net.bearcott.passwordmod;
+
+import java.util.Arrays;
+
+/**
+ * Idle expiry and a size cap for the whitelist, without ever scanning it whole.
+ *
+ * Pairs are filed in a timing wheel by the hour they were last seen: SLOTS one-hour
+ * buckets, a pair going in bucket (hour % SLOTS), so one bucket mixes pairs from every
+ * SLOTS-hour round. A sweep walks the hours from the oldest one still filed
+ * (floorHour): up to now - ttl for expiry, and further while the whitelist is over its
+ * cap. Only the buckets for those hours are read, so a steady-state sweep costs one
+ * bucket — about size / SLOTS pairs — per hour, and none in between.
+ *
+ * A sighting doesn't move anything: WhitelistIndex.touch updates the minute, and the
+ * pair is re-filed under its new hour when the walk reaches its old bucket. Revoked
+ * pairs are likewise dropped when their bucket comes up. The cap evicts
+ * least-recently-seen first, to the hour.
+ *
+ * Not thread-safe; server thread only (and load() before the server starts), like the
+ * WhitelistIndex / PrefixWhitelist it reads.
+ */
+public class WhitelistAging {
+    private static final int SLOTS = 256; // power of two; ~10.7 days of hours per round
+    private static final int STRIDE = 4;  // uuid msb, uuid lsb, key hi, key lo (the ip for exact pairs)
+    private static final int MIN_BUCKET_PAIRS = 4;
+    private static final int MINUTES_PER_HOUR = 60;
+
+    /** The entries being aged, each keyed by a uuid and a 128-bit value. */
+    public interface Entries {
+        int size();
+
+        /** Last-seen minute, or WhitelistIndex.NOT_FOUND once the entry is gone. */
+        int seen(long uuidMsb, long uuidLsb, long keyHi, long keyLo);
+    }
+
+    /** Called for each pair the sweep drops; the callee removes it from the entries. */
+    public interface Evictor {
+        void evict(long uuidMsb, long uuidLsb, long keyHi, long keyLo);
+    }
+
+    private final Entries entries;
+    private final long[][] buckets = new long[SLOTS][];
+    private final int[] counts = new int[SLOTS];
+    // No live pair is filed under an earlier hour. MAX_VALUE while nothing is filed.
+    private int floorHour = Integer.MAX_VALUE;
+    // Plain longs: written on the server thread only; metrics reads may lag a little.
+    private long expired;
+    private long evicted;
+
+    public WhitelistAging(Entries entries) {
+        this.entries = entries;
+    }
+
+    /** Whole minutes since the epoch, the unit every last-seen time is kept in. */
+    public static int nowMinute() {
+        return (int) (System.currentTimeMillis() / 60_000);
+    }
+
+    /** Files a pair just added to the entries. */
+    public void file(long msb, long lsb, long ipHi, long ipLo, int seenMinute) {
+        int hour = Math.floorDiv(seenMinute, MINUTES_PER_HOUR);
+        push(hour & (SLOTS - 1), msb, lsb, ipHi, ipLo);
+        if (hour < floorHour)
+            floorHour = hour;
+    }
+
+    /** Pairs dropped for going unseen longer than the TTL, since startup. */
+    public long expired() {
+        return expired;
+    }
+
+    /** Pairs dropped to stay under the cap, since startup. */
+    public long evicted() {
+        return evicted;
+    }
+
+    /**
+     * Evicts every pair last seen at or before nowMinute - ttlMinutes (ttl 0: never),
+     * then the least recently seen while more than maxEntries remain (0: no cap).
+     */
+    public void sweep(int nowMinute, long ttlMinutes, int maxEntries, Evictor evictor) {
+        long expireUpTo = ttlMinutes > 0 ? nowMinute - ttlMinutes : Long.MIN_VALUE;
+        int nowHour = Math.floorDiv(nowMinute, MINUTES_PER_HOUR);
+        boolean floorHeld = false;           // an earlier hour still has pairs filed
+        int emptyHours = 0;                  // consecutive hours with nothing of their own
+        int nextHour = Integer.MAX_VALUE;    // earliest later-round hour seen meanwhile
+
+        for (int hour = floorHour; hour <= nowHour;) {
+            int excess = maxEntries > 0 ? entries.size() - maxEntries : 0;
+            if ((long) hour * MINUTES_PER_HOUR > expireUpTo && excess <= 0)
+                break;
+
+            int slot = hour & (SLOTS - 1);
+            long[] bucket = buckets[slot];
+            int count = counts[slot];
+            int kept = 0;
+            boolean ownPairs = false;
+            boolean ownLeft = false;
+            for (int i = 0; i < count; i++) {
+                int base = i * STRIDE;
+                long msb = bucket[base], lsb = bucket[base + 1], ipHi = bucket[base + 2], ipLo = bucket[base + 3];
+                int seen = entries.seen(msb, lsb, ipHi, ipLo);
+                if (seen == WhitelistIndex.NOT_FOUND)
+                    continue; // revoked since it was filed
+                int seenHour = Math.floorDiv(seen, MINUTES_PER_HOUR);
+                if ((seenHour & (SLOTS - 1)) != slot) {
+                    // Seen again since it was filed: re-file under the new hour.
+                    push(seenHour & (SLOTS - 1), msb, lsb, ipHi, ipLo);
+                    nextHour = Math.min(nextHour, seenHour);
+                    continue;
+                }
+                if (seenHour <= hour) {
+                    ownPairs = true;
+                    if (seen <= expireUpTo) {
+                        evictor.evict(msb, lsb, ipHi, ipLo);
+                        expired++;
+                        continue;
+                    }
+                    if (excess > 0) {
+                        evictor.evict(msb, lsb, ipHi, ipLo);
+                        evicted++;
+                        excess--;
+                        continue;
+                    }
+                    ownLeft = true;
+                } else {
+                    nextHour = Math.min(nextHour, seenHour); // a later round
+                }
+                if (kept != i)
+                    System.arraycopy(bucket, base, bucket, kept * STRIDE, STRIDE);
+                kept++;
+            }
+            counts[slot] = kept;
+            if (kept == 0)
+                buckets[slot] = null;
+
+            floorHeld |= ownLeft;
+            if (!floorHeld)
+                floorHour = hour + 1;
+
+            if (ownPairs) {
+                emptyHours = 0;
+                nextHour = Integer.MAX_VALUE;
+            } else if (++emptyHours == SLOTS) {
+                // A full round of buckets had nothing for its hour, so every filed pair
+                // is from a later round: skip straight to the earliest of them rather
+                // than stepping through the gap an hour at a time.
+                if (nextHour == Integer.MAX_VALUE) {
+                    floorHour = Integer.MAX_VALUE;
+                    return;
+                }
+                hour = nextHour;
+                if (!floorHeld)
+                    floorHour = hour;
+                emptyHours = 0;
+                nextHour = Integer.MAX_VALUE;
+                continue;
+            }
+            hour++;
+        }
+    }
+
+    // --------- Internals ---------
+
+    private void push(int slot, long msb, long lsb, long ipHi, long ipLo) {
+        long[] bucket = buckets[slot];
+        int base = counts[slot] * STRIDE;
+        if (bucket == null)
+            bucket = buckets[slot] = new long[MIN_BUCKET_PAIRS * STRIDE];
+        else if (base == bucket.length)
+            bucket = buckets[slot] = Arrays.copyOf(bucket, bucket.length * 2);
+        bucket[base] = msb;
+        bucket[base + 1] = lsb;
+        bucket[base + 2] = ipHi;
+        bucket[base + 3] = ipLo;
+        counts[slot]++;
+    }
+}
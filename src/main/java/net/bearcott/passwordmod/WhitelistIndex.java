@@ -0,0 +1,191 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.IpAddresses;
+
+/**
+ * Open-addressing set of (uuid, ip) pairs stored as four primitive longs per slot:
+ * uuid msb, uuid lsb, ip hi, ip lo. Linear probing over one flat long[] keeps a
+ * lookup to a couple of cache lines and no allocation, and the footprint is ~72 bytes
+ * per entry at the max load factor regardless of how many pairs are whitelisted.
+ *
+ * The all-zero key marks an empty slot, so the nil UUID can't be stored — it never
+ * belongs to a real player anyway.
+ *
+ * Each pair also carries the minute it was last seen (see WhitelistAging), in a
+ * parallel int[] that moves with its slot.
+ *
+ * Not thread-safe; AuthStorage only touches it from the server thread (and from
+ * load() before the server starts).
+ */
+public class WhitelistIndex implements WhitelistAging.Entries {
+    private static final int STRIDE = 4;
+    private static final int MIN_CAPACITY = 64; // slots, always a power of two
+
+    /** Returned by {@link #seen} and {@link #touch} for a pair that isn't present. */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private long[] table = new long[MIN_CAPACITY * STRIDE];
+    private int[] seen = new int[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    private int size;
+
+    /** Visitor for {@link #forEach}; primitives so iteration stays allocation-free. */
+    public interface PairVisitor {
+        void visit(long uuidMsb, long uuidLsb, long ipHi, long ipLo, int seenMinute);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long msb, long lsb, long ipHi, long ipLo) {
+        if (isEmptyKey(msb, lsb))
+            return false;
+        return findSlot(msb, lsb, ipHi, ipLo) >= 0;
+    }
+
+    /** Last-seen minute of the pair, or NOT_FOUND. */
+    @Override
+    public int seen(long msb, long lsb, long ipHi, long ipLo) {
+        if (isEmptyKey(msb, lsb))
+            return NOT_FOUND;
+        int slot = findSlot(msb, lsb, ipHi, ipLo);
+        return slot < 0 ? NOT_FOUND : seen[slot];
+    }
+
+    /** Sets the pair's last-seen minute; returns the previous one, or NOT_FOUND. */
+    public int touch(long msb, long lsb, long ipHi, long ipLo, int seenMinute) {
+        if (isEmptyKey(msb, lsb))
+            return NOT_FOUND;
+        int slot = findSlot(msb, lsb, ipHi, ipLo);
+        if (slot < 0)
+            return NOT_FOUND;
+        int previous = seen[slot];
+        seen[slot] = seenMinute;
+        return previous;
+    }
+
+    /** Returns true if the pair was newly added; an existing pair keeps its last-seen minute. */
+    public boolean add(long msb, long lsb, long ipHi, long ipLo, int seenMinute) {
+        if (isEmptyKey(msb, lsb))
+            return false;
+        // Keep load <= 0.5 so misses (the common case at join) stop after a probe or two.
+        if ((size + 1) * 2 > mask + 1)
+            resize((mask + 1) * 2);
+
+        int slot = slotFor(msb, lsb, ipHi, ipLo);
+        while (true) {
+            int base = slot * STRIDE;
+            if (isFree(base)) {
+                table[base] = msb;
+                table[base + 1] = lsb;
+                table[base + 2] = ipHi;
+                table[base + 3] = ipLo;
+                seen[slot] = seenMinute;
+                size++;
+                return true;
+            }
+            if (matches(base, msb, lsb, ipHi, ipLo))
+                return false;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Returns true if the pair was present. */
+    public boolean remove(long msb, long lsb, long ipHi, long ipLo) {
+        if (isEmptyKey(msb, lsb))
+            return false;
+        int slot = findSlot(msb, lsb, ipHi, ipLo);
+        if (slot < 0)
+            return false;
+
+        // Backward-shift deletion: pull later entries of the probe run into the hole
+        // so lookups never need tombstones.
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (!isFree(next * STRIDE)) {
+            int nb = next * STRIDE;
+            int home = slotFor(table[nb], table[nb + 1], table[nb + 2], table[nb + 3]);
+            // Move if `home` is cyclically outside (hole, next].
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                System.arraycopy(table, nb, table, hole * STRIDE, STRIDE);
+                seen[hole] = seen[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        int hb = hole * STRIDE;
+        table[hb] = 0;
+        table[hb + 1] = 0;
+        table[hb + 2] = 0;
+        table[hb + 3] = 0;
+        seen[hole] = 0;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        table = new long[MIN_CAPACITY * STRIDE];
+        seen = new int[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+        size = 0;
+    }
+
+    public void forEach(PairVisitor visitor) {
+        for (int base = 0; base < table.length; base += STRIDE) {
+            if (!isFree(base))
+                visitor.visit(table[base], table[base + 1], table[base + 2], table[base + 3], seen[base / STRIDE]);
+        }
+    }
+
+    // --------- Internals ---------
+
+    private int findSlot(long msb, long lsb, long ipHi, long ipLo) {
+        int slot = slotFor(msb, lsb, ipHi, ipLo);
+        while (true) {
+            int base = slot * STRIDE;
+            if (isFree(base))
+                return -1;
+            if (matches(base, msb, lsb, ipHi, ipLo))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize(int newCapacity) {
+        long[] old = table;
+        int[] oldSeen = seen;
+        table = new long[newCapacity * STRIDE];
+        seen = new int[newCapacity];
+        mask = newCapacity - 1;
+        for (int base = 0; base < old.length; base += STRIDE) {
+            if (old[base] == 0 && old[base + 1] == 0)
+                continue;
+            int slot = slotFor(old[base], old[base + 1], old[base + 2], old[base + 3]);
+            while (!isFree(slot * STRIDE))
+                slot = (slot + 1) & mask;
+            System.arraycopy(old, base, table, slot * STRIDE, STRIDE);
+            seen[slot] = oldSeen[base / STRIDE];
+        }
+    }
+
+    private int slotFor(long msb, long lsb, long ipHi, long ipLo) {
+        long h = IpAddresses.mix(msb ^ Long.rotateLeft(lsb, 17) ^ Long.rotateLeft(ipHi, 31)
+                ^ Long.rotateLeft(ipLo, 47));
+        return (int) h & mask;
+    }
+
+    private boolean isFree(int base) {
+        return table[base] == 0 && table[base + 1] == 0;
+    }
+
+    private boolean matches(int base, long msb, long lsb, long ipHi, long ipLo) {
+        return table[base] == msb && table[base + 1] == lsb
+                && table[base + 2] == ipHi && table[base + 3] == ipLo;
+    }
+
+    private static boolean isEmptyKey(long msb, long lsb) {
+        return msb == 0 && lsb == 0;
+    }
+}
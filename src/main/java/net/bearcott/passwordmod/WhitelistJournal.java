@@ -0,0 +1,172 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.IpAddresses;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whitelist persistence as a snapshot plus an append-only journal.
+ *
+ * The snapshot is the "ip|uuid" per-line file the mod has always written, now with
+ * the pair's last-seen minute appended ("ip|uuid|minute"); lines without one still
+ * load. The ip may be a range ("203.0.113.0/24|uuid|minute", see PrefixWhitelist).
+ * Each whitelist or revoke appends a single "+ip|uuid|minute" / "-ip|uuid"
+ * record to the journal and fsyncs it, and a returning player's sighting a
+ * "*ip|uuid|minute" one (at most hourly, see AuthStorage). Every ip is read back in
+ * the canonical spelling of {@link #canonicalIp}, the one records are written in, so
+ * an older or hand-edited snapshot line and a later record for the same pair match.
+ * Once the journal grows past a threshold it is folded into a fresh snapshot (temp
+ * file, fsync, atomic rename) and truncated. Replaying a journal on top of a snapshot
+ * that already contains it is idempotent, so a crash between rename and truncate is
+ * harmless.
+ *
+ * Not thread-safe: append/compact must run on one thread (AuthStorage's SAVE_EXECUTOR).
+ */
+public class WhitelistJournal {
+    private static final long COMPACT_THRESHOLD_BYTES = 256 * 1024;
+    private static final int UUID_STRING_LENGTH = 36;
+    /** Last-seen minute of a pair written before the mod tracked it. */
+    public static final int UNKNOWN_SEEN = -1;
+
+    private final Path snapshotPath;
+    private final AppendLog journal;
+
+    public WhitelistJournal(Path snapshotPath, Path journalPath) {
+        this.snapshotPath = snapshotPath;
+        this.journal = new AppendLog(journalPath);
+    }
+
+    /**
+     * Folds snapshot + journal into the current "ip|uuid" pairs, in insertion order,
+     * each with its last-seen minute (UNKNOWN_SEEN if it predates tracking).
+     */
+    public Map<String, Integer> readAll() throws IOException {
+        Map<String, Integer> pairs = new LinkedHashMap<>();
+        if (Files.exists(snapshotPath)) {
+            for (String line : Files.readAllLines(snapshotPath, StandardCharsets.UTF_8)) {
+                int end = pairEnd(line, 0);
+                if (end > 0)
+                    pairs.put(canonicalPair(line, 0, end), seenAfter(line, end));
+            }
+        }
+        for (String record : journal.readRecords()) {
+            int end = record.length() < 2 ? -1 : pairEnd(record, 1);
+            if (end < 0)
+                continue;
+            String pair = canonicalPair(record, 1, end);
+            switch (record.charAt(0)) {
+                case '+' -> pairs.put(pair, seenAfter(record, end));
+                case '*' -> pairs.replace(pair, seenAfter(record, end));
+                case '-' -> pairs.remove(pair);
+                default -> {
+                }
+            }
+        }
+        return pairs;
+    }
+
+    public void appendAdd(String pairLine, int seenMinute) throws IOException {
+        append('+', pairLine + "|" + seenMinute);
+    }
+
+    public void appendSeen(String pairLine, int seenMinute) throws IOException {
+        append('*', pairLine + "|" + seenMinute);
+    }
+
+    public void appendRevoke(String pairLine) throws IOException {
+        append('-', pairLine);
+    }
+
+    /** Several revokes under a single fsync (a whitelist aging sweep). */
+    public void appendRevokes(List<String> pairLines) throws IOException {
+        List<String> records = new ArrayList<>(pairLines.size());
+        for (String pairLine : pairLines)
+            records.add("-" + pairLine);
+        if (journal.append(records) > COMPACT_THRESHOLD_BYTES)
+            compact();
+    }
+
+    /**
+     * Rewrites the snapshot from snapshot + journal and empties the journal. Pairs from
+     * before last-seen tracking are stamped with the current minute, so their TTL runs
+     * from the first compaction after an upgrade.
+     */
+    public void compact() throws IOException {
+        Map<String, Integer> pairs = readAll();
+        int now = WhitelistAging.nowMinute();
+        StringBuilder sb = new StringBuilder(pairs.size() * 64);
+        for (Map.Entry<String, Integer> e : pairs.entrySet()) {
+            int seen = e.getValue() == UNKNOWN_SEEN ? now : e.getValue();
+            sb.append(e.getKey()).append('|').append(seen).append('\n');
+        }
+        AppendLog.writeAtomically(snapshotPath, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        // Snapshot now holds everything the journal did; start the journal over.
+        journal.truncate();
+        PasswordMod.LOGGER.info("Compacted whitelist journal into {} ({} entries)", snapshotPath, pairs.size());
+    }
+
+    public void close() {
+        journal.close();
+    }
+
+    /**
+     * The one spelling of an address ("2001:db8::1" → "2001:db8:0:0:0:0:0:1") or range
+     * ("10.1.2.3/24" → "10.1.2.0/24", "10.1.2.3/32" → "10.1.2.3") used as a pair key.
+     * Text that is neither, such as the truncated "[2001" vanilla reports for some IPv6
+     * clients, is kept as it is.
+     */
+    public static String canonicalIp(String ip) {
+        long[] bits = new long[4];
+        if (ip.indexOf('/') < 0)
+            return IpAddresses.parse(ip, bits) ? IpAddresses.format(bits[0], bits[1]) : ip;
+        return IpAddresses.parseCidr(ip, bits)
+                ? IpAddresses.formatCidr(bits[0], bits[1], IpAddresses.cidrLength(bits))
+                : ip;
+    }
+
+    // --------- Internals ---------
+
+    // The "ip|uuid" in line[from, end) with its ip canonicalized.
+    private static String canonicalPair(String line, int from, int end) {
+        int sep = line.indexOf('|', from);
+        return canonicalIp(line.substring(from, sep)) + line.substring(sep, end);
+    }
+
+    private void append(char op, String body) throws IOException {
+        if (journal.append(op + body) > COMPACT_THRESHOLD_BYTES)
+            compact();
+    }
+
+    // End of the "ip|uuid" part of a line whose pair starts at `from`, or -1. Legacy
+    // format was ip-only; require ip|uuid now so the pair is proven. The full 36-char
+    // UUID check also rejects a record whose UUID was cut short. IPv6 addresses have no
+    // '|', so the first one after `from` is the separator.
+    private static int pairEnd(String line, int from) {
+        int sep = line.indexOf('|', from);
+        if (sep <= from)
+            return -1;
+        int end = sep + 1 + UUID_STRING_LENGTH;
+        if (end > line.length() || end < line.length() && line.charAt(end) != '|')
+            return -1;
+        return end;
+    }
+
+    // The "|minute" after a pair, UNKNOWN_SEEN if absent or unreadable.
+    private static int seenAfter(String line, int pairEnd) {
+        if (pairEnd == line.length())
+            return UNKNOWN_SEEN;
+        try {
+            return Integer.parseInt(line, pairEnd + 1, line.length(), 10);
+        } catch (NumberFormatException e) {
+            return UNKNOWN_SEEN;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package net.bearcott.passwordmod.mixin;
+
+import io.netty.channel.ChannelHandlerContext;
+import net.bearcott.passwordmod.PacketFirewall;
+import net.minecraft.network.Connection;
+import net.minecraft.network.PacketListener;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Connection.class)
+public abstract class ConnectionMixin {
+
+    @Shadow
+    public abstract PacketListener getPacketListener();
+
+    // Runs on the Netty event loop, before the packet is handed to its listener (which
+    // would schedule it onto the server thread). Dropping here costs nothing on the tick.
+    @Inject(method = "channelRead0(Lio/netty/channel/ChannelHandlerContext;Lnet/minecraft/network/protocol/Packet;)V",
+            at = @At("HEAD"), cancellable = true, remap = true)
+    private void onePasswordAuth$firewallLockedPlayers(ChannelHandlerContext ctx, Packet<?> packet, CallbackInfo ci) {
+        if (getPacketListener() instanceof ServerGamePacketListenerImpl game
+                && !PacketFirewall.allow(game.player, packet))
+            ci.cancel();
+    }
+}
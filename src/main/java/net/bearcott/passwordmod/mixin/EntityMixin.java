@@ -0,0 +1,21 @@
+package net.bearcott.passwordmod.mixin;
+
+import net.bearcott.passwordmod.PendingPlayerRegistry;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// setInvulnerable is declared on Entity and not overridden by ServerPlayer, so the
+// hook lives here and filters down to players.
+@Mixin(Entity.class)
+public abstract class EntityMixin {
+
+    @Inject(method = "setInvulnerable", at = @At("TAIL"), remap = true)
+    private void onePasswordAuth$watchInvulnerability(boolean invulnerable, CallbackInfo ci) {
+        if (!invulnerable && (Object) this instanceof ServerPlayer player)
+            PendingPlayerRegistry.markDrifted(player.getUUID());
+    }
+}
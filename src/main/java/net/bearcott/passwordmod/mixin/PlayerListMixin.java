@@ -1,6 +1,9 @@
 package net.bearcott.passwordmod.mixin;
 
 import net.bearcott.passwordmod.AuthStorage;
+import net.bearcott.passwordmod.ConnectionThrottle;
+import net.bearcott.passwordmod.PasswordMod;
+import net.bearcott.passwordmod.PendingAdmission;
 import net.bearcott.passwordmod.util.Messages;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
@@ -9,6 +12,7 @@ import net.minecraft.server.players.PlayerList;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.net.SocketAddress;
@@ -16,6 +20,33 @@ import java.net.SocketAddress;
 @Mixin(PlayerList.class)
 public abstract class PlayerListMixin {
 
+    // Refuse connection floods before a player entity, session or webhook exists.
+    // Declared first so it runs ahead of the duplicate-login check below.
+    @Inject(method = "canPlayerLogin", at = @At("HEAD"), cancellable = true, remap = true)
+    private void onePasswordAuth$throttleConnections(
+            SocketAddress address,
+            NameAndId profile,
+            CallbackInfoReturnable<Component> cir) {
+        if (!ConnectionThrottle.admit(address, profile.id()))
+            cir.setReturnValue(Component.literal(Messages.CONNECT_RATE_LIMITED));
+    }
+
+    // Cap concurrent pending sessions. Runs last so only connections vanilla would
+    // otherwise accept take a place in line; whitelisted pairs skip the cap.
+    @Inject(method = "canPlayerLogin", at = @At("RETURN"), cancellable = true, remap = true)
+    private void onePasswordAuth$capPendingSessions(
+            SocketAddress address,
+            NameAndId profile,
+            CallbackInfoReturnable<Component> cir) {
+        if (cir.getReturnValue() != null)
+            return;
+        if (ConnectionThrottle.isWhitelisted(address, profile.id()))
+            return;
+        Component refusal = PendingAdmission.admit(profile.id());
+        if (refusal != null)
+            cir.setReturnValue(refusal);
+    }
+
     // Reject a new connection when an authenticated session for the same UUID is
     // already online. If the existing connection is still in lockdown, fall through
     // to vanilla (which kicks it) so a legitimate owner can recover a stuck login.
@@ -37,4 +68,18 @@ public abstract class PlayerListMixin {
             return;
         cir.setReturnValue(Component.literal(Messages.DUPLICATE_LOGIN_DENIED));
     }
+
+    // Session creates are only awaited at the end of the tick, and an autosave or a
+    // disconnect earlier in the tick can write a just-locked player's playerdata
+    // (spectator mode and all). Make the sessions durable first, so a crash can never
+    // leave that on disk without the session that restores the player; if the disk is
+    // stuck, skip the save — the file on disk still has the player as they joined.
+    @Inject(method = "save", at = @At("HEAD"), cancellable = true, remap = true)
+    private void onePasswordAuth$awaitSessionRecords(ServerPlayer player, CallbackInfo ci) {
+        if (AuthStorage.isSessionDurable(player.getUUID()))
+            return;
+        PasswordMod.LOGGER.warn("Not saving {}'s playerdata: their lockdown session isn't on disk yet",
+                player.getScoreboardName());
+        ci.cancel();
+    }
 }
@@ -0,0 +1,38 @@
+package net.bearcott.passwordmod.mixin;
+
+import net.bearcott.passwordmod.PendingPlayerRegistry;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.effect.MobEffects;
+import net.minecraft.world.level.GameType;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.Collection;
+
+// Flags locked players whose lockdown state was changed from outside (/gamemode,
+// /effect clear, milk, other mods). The tick handler re-asserts flagged players at the
+// end of the tick rather than here, mid-way through whoever made the change.
+@Mixin(ServerPlayer.class)
+public abstract class ServerPlayerMixin {
+
+    @Inject(method = "setGameMode", at = @At("RETURN"), remap = true)
+    private void onePasswordAuth$watchGameMode(GameType gameMode, CallbackInfoReturnable<Boolean> cir) {
+        if (gameMode != GameType.SPECTATOR)
+            PendingPlayerRegistry.markDrifted(((ServerPlayer) (Object) this).getUUID());
+    }
+
+    // Covers removeEffect, removeAllEffects and natural expiry.
+    @Inject(method = "onEffectsRemoved", at = @At("TAIL"), remap = true)
+    private void onePasswordAuth$watchEffects(Collection<MobEffectInstance> effects, CallbackInfo ci) {
+        for (MobEffectInstance effect : effects) {
+            if (effect.is(MobEffects.BLINDNESS)) {
+                PendingPlayerRegistry.markDrifted(((ServerPlayer) (Object) this).getUUID());
+                return;
+            }
+        }
+    }
+}
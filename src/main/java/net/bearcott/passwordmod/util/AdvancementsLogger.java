@@ -3,34 +3,120 @@ package net.bearcott.passwordmod.util;
 import net.bearcott.passwordmod.AuthStorage;
 import net.bearcott.passwordmod.PasswordMod;
 import net.bearcott.passwordmod.util.Notifications.Target;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.minecraft.advancements.AdvancementHolder;
 import net.minecraft.server.level.ServerPlayer;
 
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Advancement feed. Authorized awards are collected per player for DIGEST_WINDOW_MS and
+ * posted as one message, so "/advancement grant @a everything" or a modpack's burst of
+ * unlocks costs one line per player instead of one webhook per criterion. Awards to a
+ * player who hasn't logged in are a security alert and still go to the admin channel
+ * immediately.
+ *
+ * Server-thread only: awards, the tick flush and data pack reloads all run there.
+ */
 public class AdvancementsLogger {
     private static final String SECRET_ADVANCEMENT_TITLE = "Secret/Internal Advancement";
+    private static final long DIGEST_WINDOW_MS = 3000;
+    private static final int DIGEST_MAX_TITLES = 15;
+
+    // Resolving a title walks its Component (translation lookup included); do it once
+    // per advancement. Keyed by identity: a data pack reload builds new holders, and
+    // the cache is dropped then anyway.
+    private static final Map<AdvancementHolder, String> TITLES = new IdentityHashMap<>();
+
+    private static final class Digest {
+        final String playerName;
+        final long dueAt;
+        // Set: an advancement with several criteria can be awarded more than once.
+        final Set<String> titles = new LinkedHashSet<>();
+
+        Digest(String playerName, long dueAt) {
+            this.playerName = playerName;
+            this.dueAt = dueAt;
+        }
+    }
+
+    private static final Map<UUID, Digest> DIGESTS = new LinkedHashMap<>();
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (!DIGESTS.isEmpty())
+                flush(System.currentTimeMillis());
+        });
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resources, success) -> TITLES.clear());
+        // Post whatever is still collecting before the worker pool is drained.
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> flush(Long.MAX_VALUE));
+    }
 
     public static void logAdvancement(ServerPlayer player, AdvancementHolder advancement) {
-        String title = advancement.value().display()
+        String title = TITLES.computeIfAbsent(advancement, a -> a.value().display()
                 .map(display -> display.getTitle().getString())
-                .orElse(SECRET_ADVANCEMENT_TITLE);
+                .orElse(SECRET_ADVANCEMENT_TITLE));
 
         // Skip recipe unlocks and other silent advancements — otherwise webhooks get spammed.
         if (title.equals(SECRET_ADVANCEMENT_TITLE))
             return;
 
-        boolean isAuthorized = !AuthStorage.hasPendingSession(player.getUUID());
         String playerName = player.getName().getString();
 
-        String message = String.format(
-                isAuthorized ? Messages.WEBHOOK_ADVANCEMENT_AUTHORIZED_FMT
-                             : Messages.WEBHOOK_ADVANCEMENT_UNAUTHORIZED_FMT,
-                playerName, title);
+        // Unauthorized → admin channel as a security alert, right away.
+        if (AuthStorage.hasPendingSession(player.getUUID())) {
+            Notifications.broadcast(String.format(Messages.WEBHOOK_ADVANCEMENT_UNAUTHORIZED_FMT, playerName, title),
+                    null, Target.ADMIN, PasswordMod.WORKER_POOL);
+            PasswordMod.LOGGER.info("{} made advancement while locked: {}", playerName, title);
+            return;
+        }
+
+        // Authorized → public feed, once the player's window closes.
+        DIGESTS.computeIfAbsent(player.getUUID(),
+                u -> new Digest(playerName, System.currentTimeMillis() + DIGEST_WINDOW_MS)).titles.add(title);
+    }
 
-        // Authorized → public feed. Unauthorized → admin channel as a security alert.
-        Notifications.broadcast(message, null,
-                isAuthorized ? Target.PUBLIC : Target.ADMIN,
-                PasswordMod.WORKER_POOL);
+    // Posts every digest due by `now`. Windows open in order, so the first one not yet
+    // due ends the scan.
+    private static void flush(long now) {
+        for (Iterator<Digest> it = DIGESTS.values().iterator(); it.hasNext();) {
+            Digest digest = it.next();
+            if (digest.dueAt > now)
+                break;
+            it.remove();
+            post(digest);
+        }
+    }
 
-        PasswordMod.LOGGER.info("{} made advancement: {}", playerName, title);
+    private static void post(Digest digest) {
+        String message;
+        if (digest.titles.size() == 1) {
+            message = String.format(Messages.WEBHOOK_ADVANCEMENT_AUTHORIZED_FMT, digest.playerName,
+                    digest.titles.iterator().next());
+        } else {
+            StringBuilder list = new StringBuilder();
+            int shown = 0;
+            for (String title : digest.titles) {
+                if (shown == DIGEST_MAX_TITLES)
+                    break;
+                if (shown++ > 0)
+                    list.append(", ");
+                list.append('`').append(title).append('`');
+            }
+            if (digest.titles.size() > shown)
+                list.append(String.format(Messages.WEBHOOK_ADVANCEMENT_DIGEST_MORE_FMT, digest.titles.size() - shown));
+            message = String.format(Messages.WEBHOOK_ADVANCEMENT_DIGEST_FMT, digest.playerName,
+                    digest.titles.size(), list);
+        }
+        Notifications.broadcast(message, null, Target.PUBLIC, PasswordMod.WORKER_POOL);
+        PasswordMod.LOGGER.info("{} made {} advancement(s): {}", digest.playerName, digest.titles.size(),
+                String.join(", ", digest.titles));
     }
-}
\ No newline at end of file
+}
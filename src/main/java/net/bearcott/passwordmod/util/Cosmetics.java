@@ -1,5 +1,6 @@
 package net.bearcott.passwordmod.util;
 
+import net.bearcott.passwordmod.AuthConfig;
 import net.bearcott.passwordmod.AuthStorage;
 import net.minecraft.core.Holder;
 import net.minecraft.core.particles.ParticleOptions;
@@ -13,7 +14,21 @@ import net.minecraft.sounds.SoundSource;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LightningBolt;
 
+import java.util.List;
+
 public class Cosmetics {
+    // The lockdown title screen as one bundle, built from the config strings it was
+    // made for. Packets are immutable, so one instance is shared by every locked player
+    // and only rebuilt when a reload changes login_title / login_description.
+    private record AuthTitle(String title, String description, ClientboundBundlePacket packet) {
+    }
+
+    private static volatile AuthTitle authTitle;
+    private static final ClientboundBundlePacket RESET_TITLE = new ClientboundBundlePacket(List.of(
+            new ClientboundSetTitleTextPacket(Component.empty()),
+            new ClientboundSetSubtitleTextPacket(Component.empty()),
+            new ClientboundSetActionBarTextPacket(Component.empty())));
+
     public static void startKickPlayerEffects(ServerPlayer player) {
         Cosmetics.spawnLightning(player);
         Cosmetics.playSound(player, net.minecraft.sounds.SoundEvents.DRAGON_FIREBALL_EXPLODE, 1.0f);
@@ -51,15 +66,26 @@ public class Cosmetics {
     }
 
     public static void sendAuthTitle(ServerPlayer player) {
-        player.connection.send(new ClientboundSetTitlesAnimationPacket(10, 70, 20));
-        player.connection.send(new ClientboundSetTitleTextPacket(Component.literal(AuthStorage.loginTitle)));
-        player.connection.send(new ClientboundSetSubtitleTextPacket(Component.literal(AuthStorage.loginDescription)));
-        player.connection.send(new ClientboundSetActionBarTextPacket(Component.literal(Messages.LOGIN_ACTION_BAR)));
+        player.connection.send(authTitlePacket());
     }
 
     public static void resetTitle(ServerPlayer player) {
-        player.connection.send(new ClientboundSetTitleTextPacket(Component.literal("")));
-        player.connection.send(new ClientboundSetSubtitleTextPacket(Component.literal("")));
-        player.connection.send(new ClientboundSetActionBarTextPacket(Component.literal("")));
+        player.connection.send(RESET_TITLE);
+    }
+
+    private static ClientboundBundlePacket authTitlePacket() {
+        AuthConfig config = AuthStorage.config();
+        String title = config.loginTitle();
+        String description = config.loginDescription();
+        AuthTitle cached = authTitle;
+        if (cached == null || !cached.title().equals(title) || !cached.description().equals(description)) {
+            cached = new AuthTitle(title, description, new ClientboundBundlePacket(List.of(
+                    new ClientboundSetTitlesAnimationPacket(10, 70, 20),
+                    new ClientboundSetTitleTextPacket(Component.literal(title)),
+                    new ClientboundSetSubtitleTextPacket(Component.literal(description)),
+                    new ClientboundSetActionBarTextPacket(Component.literal(Messages.LOGIN_ACTION_BAR)))));
+            authTitle = cached;
+        }
+        return cached.packet();
     }
 }
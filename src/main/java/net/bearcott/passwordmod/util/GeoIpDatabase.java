@@ -0,0 +1,177 @@
+package net.bearcott.passwordmod.util;
+
+import net.bearcott.passwordmod.AppendLog;
+import net.bearcott.passwordmod.PasswordMod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Offline IP → city/country lookup over a sorted range table.
+ *
+ * Admins provide a CSV of {@code cidr,city,country} lines (non-overlapping ranges,
+ * '#' comments allowed; the city may itself contain commas). On first use, or
+ * whenever the CSV is newer, it is compiled into a sibling ".bin" file:
+ *
+ * <pre>
+ *   header   int magic, int version, int count, int stringsOffset
+ *   records  count x { long startHi, startLo, endHi, endLo; int city, country }
+ *   strings  { short length; utf-8 bytes }...
+ * </pre>
+ *
+ * The .bin is memory-mapped and binary-searched with absolute reads, so lookups are
+ * thread-safe, make no network calls and take microseconds.
+ */
+public class GeoIpDatabase implements LocationProvider {
+    private static final int MAGIC = 0x4F504147; // "OPAG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 40;
+
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final int stringsOffset;
+
+    private GeoIpDatabase(MappedByteBuffer buf) throws IOException {
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+            throw new IOException("Not a compiled GeoIP database");
+        this.buf = buf;
+        this.count = buf.getInt(8);
+        this.stringsOffset = buf.getInt(12);
+    }
+
+    /** Opens {@code csv}, (re)compiling its .bin if needed. Returns null if there's no CSV. */
+    public static GeoIpDatabase open(Path csv) throws IOException {
+        if (!Files.exists(csv))
+            return null;
+        Path bin = csv.resolveSibling(csv.getFileName() + ".bin");
+        if (!Files.exists(bin) || Files.getLastModifiedTime(bin).compareTo(Files.getLastModifiedTime(csv)) < 0)
+            compile(csv, bin);
+
+        try (FileChannel ch = FileChannel.open(bin, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            GeoIpDatabase db = new GeoIpDatabase(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+            PasswordMod.LOGGER.info("Loaded offline GeoIP database {} ({} ranges)", bin, db.count);
+            return db;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public CompletableFuture<Helpers.Location> lookup(String ip) {
+        return CompletableFuture.completedFuture(find(ip));
+    }
+
+    /** Synchronous lookup; null if no range covers {@code ip}. */
+    public Helpers.Location find(String ip) {
+        long[] addr = new long[2];
+        if (ip == null || !IpAddresses.parse(ip, addr))
+            return null;
+
+        // Last record whose start <= addr.
+        int lo = 0;
+        int hi = count - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int base = HEADER_BYTES + mid * RECORD_BYTES;
+            if (IpAddresses.compare(buf.getLong(base), buf.getLong(base + 8), addr[0], addr[1]) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0)
+            return null;
+        int base = HEADER_BYTES + found * RECORD_BYTES;
+        if (IpAddresses.compare(addr[0], addr[1], buf.getLong(base + 16), buf.getLong(base + 24)) > 0)
+            return null;
+        return new Helpers.Location(readString(buf.getInt(base + 32)), readString(buf.getInt(base + 36)));
+    }
+
+    private String readString(int offset) {
+        int at = stringsOffset + offset;
+        int len = Short.toUnsignedInt(buf.getShort(at));
+        byte[] bytes = new byte[len];
+        buf.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --------- Compilation ---------
+
+    private record Range(long startHi, long startLo, long endHi, long endLo, int city, int country) {
+    }
+
+    private static void compile(Path csv, Path bin) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        Map<String, Integer> stringOffsets = new HashMap<>();
+        ByteBuffer strings = ByteBuffer.allocate(1 << 16);
+        long[] range = new long[4];
+        int lineNo = 0;
+        int skipped = 0;
+
+        for (String line : Files.readAllLines(csv, StandardCharsets.UTF_8)) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            int first = line.indexOf(',');
+            int last = line.lastIndexOf(',');
+            if (first < 0 || last == first || !IpAddresses.parseCidr(line.substring(0, first).trim(), range)) {
+                if (skipped++ < 5)
+                    PasswordMod.LOGGER.warn("Skipping malformed GeoIP line {} in {}: {}", lineNo, csv, line);
+                continue;
+            }
+            String city = line.substring(first + 1, last).trim();
+            String country = line.substring(last + 1).trim();
+            strings = intern(city, stringOffsets, strings);
+            strings = intern(country, stringOffsets, strings);
+            ranges.add(new Range(range[0], range[1], range[2], range[3],
+                    stringOffsets.get(city), stringOffsets.get(country)));
+        }
+
+        ranges.sort((a, b) -> IpAddresses.compare(a.startHi(), a.startLo(), b.startHi(), b.startLo()));
+
+        int stringsOffset = HEADER_BYTES + ranges.size() * RECORD_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(stringsOffset + strings.position());
+        out.putInt(MAGIC).putInt(VERSION).putInt(ranges.size()).putInt(stringsOffset);
+        for (Range r : ranges) {
+            out.putLong(r.startHi()).putLong(r.startLo()).putLong(r.endHi()).putLong(r.endLo());
+            out.putInt(r.city()).putInt(r.country());
+        }
+        out.put(strings.flip());
+        AppendLog.writeAtomically(bin, out.array());
+        PasswordMod.LOGGER.info("Compiled GeoIP database {} -> {} ({} ranges, {} skipped)",
+                csv, bin, ranges.size(), skipped);
+    }
+
+    private static ByteBuffer intern(String s, Map<String, Integer> offsets, ByteBuffer strings) {
+        if (offsets.containsKey(s))
+            return strings;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, 0xFFFF);
+        if (strings.remaining() < len + 2) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(strings.capacity() * 2, strings.position() + len + 2));
+            grown.put(strings.flip());
+            strings = grown;
+        }
+        offsets.put(s, strings.position());
+        strings.putShort((short) len).put(bytes, 0, len);
+        return strings;
+    }
+}
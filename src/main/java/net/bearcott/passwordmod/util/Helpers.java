@@ -1,21 +1,19 @@
 package net.bearcott.passwordmod.util;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
 import java.security.SecureRandom;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 import net.bearcott.passwordmod.AuthStorage;
 import net.bearcott.passwordmod.PasswordMod;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 public class Helpers {
-    private static final int LOCATION_LOOKUP_TIMEOUT_MS = 5000;
     private static final long RATE_LIMIT_WINDOW_MS = 1000L;
+    private static final int LOCATION_CACHE_MAX_ENTRIES = 1024;
+    private static final long LOCATION_CACHE_TTL_MS = 6 * 60 * 60 * 1000L;
+    private static final long LOCATION_CACHE_FAILURE_TTL_MS = 60 * 1000L;
 
     // Pronounceable-password alphabet. Consonants + vowels build CV syllables that are
     // easy to read aloud; a digit tail and a symbol push entropy past ~7e8 combinations.
@@ -24,6 +22,19 @@ public class Helpers {
     private static final char[] PW_SYMBOLS = "!@#$".toCharArray();
     private static final SecureRandom PW_RANDOM = new SecureRandom();
 
+    // Tried in order until one knows the IP. Defaults to the ip-api.com lookup until
+    // AuthStorage.load() configures the offline database.
+    private static volatile List<LocationProvider> locationProviders = List.of(Helpers::fetchLocationDataHttp);
+
+    // Shared by webhooks and sessions, so one join's BOTH broadcast plus the session's
+    // own lookup cost a single resolve per IP.
+    public static final LocationCache LOCATION_CACHE = new LocationCache(LOCATION_CACHE_MAX_ENTRIES,
+            LOCATION_CACHE_TTL_MS, LOCATION_CACHE_FAILURE_TTL_MS, Helpers::resolveLocation);
+
+    // ip-api.com lookups only; the offline database answers in microseconds.
+    public static final LatencyStat GEO_HTTP_LATENCY = new LatencyStat();
+    public static final LongAdder GEO_HTTP_FAILURES = new LongAdder();
+
     public static record Location(String city, String country) {
         public String full() {
             return city + ", " + country;
@@ -38,25 +49,52 @@ public class Helpers {
         }
     }
 
-    public static Location fetchLocationData(String ip) {
-        try {
-            URL url = URI.create("http://ip-api.com/csv/" + ip.split(":")[0].replace("/", "") + "?fields=city,country")
-                    .toURL();
-            HttpURLConnection c = (HttpURLConnection) url.openConnection();
-            c.setConnectTimeout(LOCATION_LOOKUP_TIMEOUT_MS);
-            c.setReadTimeout(LOCATION_LOOKUP_TIMEOUT_MS);
-            try (BufferedReader r = new BufferedReader(new InputStreamReader(c.getInputStream(), UTF_8))) {
-                String l = r.readLine();
+    public static void configureLocationProviders(List<LocationProvider> providers) {
+        locationProviders = List.copyOf(providers);
+        LOCATION_CACHE.clear();
+    }
+
+    // Cached and coalesced per IP; never blocks the caller.
+    public static CompletableFuture<Location> fetchLocationData(String ip) {
+        if (ip == null)
+            return CompletableFuture.completedFuture(Location.unknown());
+        return LOCATION_CACHE.get(ip);
+    }
+
+    private static CompletableFuture<Location> resolveLocation(String ip) {
+        long[] addr = new long[2];
+        if (IpAddresses.parse(ip, addr) && IpAddresses.isLoopback(addr[0], addr[1]))
+            return CompletableFuture.completedFuture(Location.localhost());
+        return resolveFrom(locationProviders, 0, ip);
+    }
+
+    // Ask providers in order until one knows the IP.
+    private static CompletableFuture<Location> resolveFrom(List<LocationProvider> providers, int index, String ip) {
+        if (index >= providers.size())
+            return CompletableFuture.completedFuture(Location.unknown());
+        return providers.get(index).lookup(ip)
+                .exceptionally(err -> null)
+                .thenCompose(loc -> loc != null ? CompletableFuture.completedFuture(loc)
+                        : resolveFrom(providers, index + 1, ip));
+    }
+
+    // Online fallback provider over the shared HTTP transport; completes with null when
+    // the lookup fails so the chain can move on.
+    public static CompletableFuture<Location> fetchLocationDataHttp(String ip) {
+        String url = "http://ip-api.com/csv/" + ip.split(":")[0].replace("/", "") + "?fields=city,country";
+        long start = System.nanoTime();
+        return HttpTransport.shared().get(url).handle((resp, err) -> {
+            GEO_HTTP_LATENCY.record(System.nanoTime() - start);
+            if (err == null && resp.statusCode() == 200) {
+                String l = resp.body().lines().findFirst().orElse(null);
                 if (l != null && l.contains(",")) {
                     String[] pts = l.split(",");
                     return new Location(pts[1].trim(), pts[0].trim());
                 }
-            } finally {
-                c.disconnect();
             }
-        } catch (Exception ignored) {
-        }
-        return Location.unknown();
+            GEO_HTTP_FAILURES.increment();
+            return null;
+        });
     }
 
     public static boolean isRateLimited(UUID uuid) {
@@ -0,0 +1,148 @@
+package net.bearcott.passwordmod.util;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single shared, non-blocking HTTP client for webhooks and geo lookups. One
+ * {@link HttpClient} keeps connections to discord.com alive (HTTP/2 where the server
+ * offers it), so no thread sits blocked on a socket.
+ *
+ * Requests beyond {@code maxInFlight} wait in a queue and start as earlier ones
+ * finish, so a flood of events can't open an unbounded number of connections.
+ */
+public class HttpTransport {
+    private static final int DEFAULT_TIMEOUT_MS = 5000;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    private static final String USER_AGENT = "Java-Discord-Webhook";
+
+    private static volatile HttpTransport shared = new HttpTransport(DEFAULT_TIMEOUT_MS, DEFAULT_MAX_IN_FLIGHT);
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private volatile boolean closing;
+
+    public HttpTransport(int timeoutMs, int maxInFlight) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    public static HttpTransport shared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the shared transport. Requests already sent or queued on the old one
+     * finish there, then its client is shut down.
+     */
+    public static void configure(int timeoutMs, int maxInFlight) {
+        HttpTransport previous = shared;
+        shared = new HttpTransport(timeoutMs, maxInFlight);
+        previous.close();
+    }
+
+    /**
+     * Shuts the client down once nothing is in flight or queued; doesn't block. Later
+     * requests on this transport fail.
+     */
+    public void close() {
+        closing = true;
+        shutdownIfIdle();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int waiting() {
+        return waiting.size();
+    }
+
+    public CompletableFuture<HttpResponse<String>> postJson(String url, String jsonBody) {
+        return submit(() -> HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("User-Agent", USER_AGENT)
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> get(String url) {
+        return submit(() -> HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("User-Agent", USER_AGENT)
+                .GET()
+                .build());
+    }
+
+    // --------- Internals ---------
+
+    private CompletableFuture<HttpResponse<String>> submit(Supplier<HttpRequest> request) {
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            try {
+                client.sendAsync(request.get(), HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((resp, err) -> {
+                            release();
+                            if (err != null)
+                                result.completeExceptionally(err);
+                            else
+                                result.complete(resp);
+                        });
+            } catch (RuntimeException e) {
+                // Bad URL etc. — fail this request but keep the slot accounting right.
+                release();
+                result.completeExceptionally(e);
+            }
+        };
+
+        waiting.add(start);
+        drain();
+        return result;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+        if (closing)
+            shutdownIfIdle();
+    }
+
+    private void shutdownIfIdle() {
+        if (inFlight.get() == 0 && waiting.isEmpty())
+            client.shutdown(); // idempotent; lets the selector thread exit
+    }
+
+    // Start queued requests while there are free slots.
+    private void drain() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight || waiting.isEmpty())
+                return;
+            if (!inFlight.compareAndSet(current, current + 1))
+                continue;
+            Runnable next = waiting.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            next.run();
+        }
+    }
+}
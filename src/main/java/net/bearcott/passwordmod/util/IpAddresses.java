@@ -0,0 +1,338 @@
+package net.bearcott.passwordmod.util;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Allocation-free IP parsing into a 128-bit (hi, lo) pair. IPv4 is stored as an
+ * IPv4-mapped IPv6 address (::ffff:a.b.c.d) so every address shares one key space.
+ *
+ * Strings that aren't a valid address (vanilla's getIpAddress() truncates IPv6 at the
+ * first ':', e.g. "[2001") are folded into the 0100::/64 discard-only prefix with a
+ * 64-bit hash of the text, so they still get a stable key without colliding with a
+ * real address.
+ */
+public class IpAddresses {
+    public static final long V4_MAPPED_HI = 0L;
+    public static final long V4_MAPPED_LO_PREFIX = 0x0000_FFFF_0000_0000L;
+    public static final long OPAQUE_HI = 0x0100_0000_0000_0000L;
+
+    /**
+     * Parses {@code s} into {@code out[0]} (high 64 bits) and {@code out[1]} (low 64
+     * bits). Returns false if {@code s} isn't an address; {@code out} then holds the
+     * opaque hashed key instead.
+     */
+    public static boolean parse(CharSequence s, long[] out) {
+        int start = 0;
+        int end = s.length();
+        // Accept "[v6]" and strip a "%zone" suffix; neither is part of the address.
+        if (end > 0 && s.charAt(0) == '[') {
+            start = 1;
+            if (end > 1 && s.charAt(end - 1) == ']')
+                end--;
+        }
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '%') {
+                end = i;
+                break;
+            }
+        }
+
+        long v4 = parseV4(s, start, end);
+        if (v4 >= 0) {
+            out[0] = V4_MAPPED_HI;
+            out[1] = V4_MAPPED_LO_PREFIX | v4;
+            return true;
+        }
+        if (parseV6(s, start, end, out))
+            return true;
+
+        out[0] = OPAQUE_HI;
+        out[1] = hash(s);
+        return false;
+    }
+
+    /**
+     * Parses "addr/len" (or a bare address as a host route) into the inclusive range
+     * {@code range[0..1]} (first address) to {@code range[2..3]} (last address). IPv4
+     * prefix lengths are relative to the 32-bit address.
+     */
+    public static boolean parseCidr(CharSequence s, long[] range) {
+        int slash = -1;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '/') {
+                slash = i;
+                break;
+            }
+        }
+        CharSequence addr = slash < 0 ? s : s.subSequence(0, slash);
+        if (!parse(addr, range))
+            return false;
+        boolean v4 = isV4(range[0], range[1]);
+        int bits = v4 ? 32 : 128;
+        if (slash >= 0) {
+            try {
+                bits = Integer.parseInt(s.subSequence(slash + 1, s.length()).toString().trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (bits < 0 || bits > (v4 ? 32 : 128))
+                return false;
+        }
+        int prefix = v4 ? bits + 96 : bits;
+        long hiMask = prefix >= 64 ? -1L : (prefix == 0 ? 0 : -1L << (64 - prefix));
+        long loMask = prefix <= 64 ? 0 : (prefix == 128 ? -1L : -1L << (128 - prefix));
+        long hi = range[0] & hiMask;
+        long lo = range[1] & loMask;
+        range[0] = hi;
+        range[1] = lo;
+        range[2] = hi | ~hiMask;
+        range[3] = lo | ~loMask;
+        return true;
+    }
+
+    /** Prefix length of a {@link #parseCidr} range, counted over all 128 bits. */
+    public static int cidrLength(long[] range) {
+        return 128 - Long.bitCount(range[0] ^ range[2]) - Long.bitCount(range[1] ^ range[3]);
+    }
+
+    /**
+     * Inverse of {@link #parseCidr} for a network with its host bits zeroed; {@code
+     * length} counts all 128 bits. A full-length prefix is written as the bare address.
+     */
+    public static String formatCidr(long hi, long lo, int length) {
+        if (length == 128)
+            return format(hi, lo);
+        return format(hi, lo) + "/" + (isV4(hi, lo) ? length - 96 : length);
+    }
+
+    /**
+     * Fills {@code out} from a resolved address (4 or 16 raw bytes), with the same
+     * layout as {@link #parse}. Skips the string round-trip on connection paths.
+     */
+    public static void fromInetAddress(InetAddress address, long[] out) {
+        byte[] b = address.getAddress();
+        if (b.length == 4) {
+            out[0] = V4_MAPPED_HI;
+            out[1] = V4_MAPPED_LO_PREFIX | (Integer.toUnsignedLong(
+                    (b[0] & 0xFF) << 24 | (b[1] & 0xFF) << 16 | (b[2] & 0xFF) << 8 | (b[3] & 0xFF)));
+            return;
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < 8; i++)
+            hi = hi << 8 | (b[i] & 0xFF);
+        for (int i = 8; i < 16; i++)
+            lo = lo << 8 | (b[i] & 0xFF);
+        out[0] = hi;
+        out[1] = lo;
+    }
+
+    /**
+     * A connection's address in {@link #format} form, or null if it has no IP (an
+     * integrated server's in-memory connection). Parses back to exactly what
+     * {@link #fromInetAddress} gives for the same socket, which vanilla's
+     * getIpAddress() doesn't for IPv6.
+     */
+    public static String of(SocketAddress address) {
+        if (!(address instanceof InetSocketAddress inet) || inet.getAddress() == null)
+            return null;
+        long[] addr = new long[2];
+        fromInetAddress(inet.getAddress(), addr);
+        return format(addr[0], addr[1]);
+    }
+
+    /**
+     * Masks {@code addr} in place down to its subnet: /24 for IPv4, /64 for IPv6 —
+     * roughly what one customer or host gets, so rotating addresses inside it still
+     * lands on the same key.
+     */
+    public static void toSubnet(long[] addr) {
+        if (isV4(addr[0], addr[1]))
+            addr[1] &= 0xFFFF_FFFF_FFFF_FF00L;
+        else
+            addr[1] = 0;
+    }
+
+    /** Unsigned 128-bit comparison of (aHi, aLo) against (bHi, bLo). */
+    public static int compare(long aHi, long aLo, long bHi, long bLo) {
+        int c = Long.compareUnsigned(aHi, bHi);
+        return c != 0 ? c : Long.compareUnsigned(aLo, bLo);
+    }
+
+    public static boolean isLoopback(long hi, long lo) {
+        if (isV4(hi, lo))
+            return ((lo >>> 24) & 0xFF) == 127;
+        return hi == 0 && lo == 1;
+    }
+
+    public static boolean isOpaque(long hi) {
+        return hi == OPAQUE_HI;
+    }
+
+    public static boolean isV4(long hi, long lo) {
+        return hi == V4_MAPPED_HI && (lo & 0xFFFF_FFFF_0000_0000L) == V4_MAPPED_LO_PREFIX;
+    }
+
+    /** Inverse of {@link #parse} for real addresses. Not meant for hot paths. */
+    public static String format(long hi, long lo) {
+        if (isV4(hi, lo)) {
+            return ((lo >>> 24) & 0xFF) + "." + ((lo >>> 16) & 0xFF) + "."
+                    + ((lo >>> 8) & 0xFF) + "." + (lo & 0xFF);
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int g = 0; g < 8; g++) {
+            long word = g < 4 ? hi : lo;
+            int shift = 48 - (g % 4) * 16;
+            if (g > 0)
+                sb.append(':');
+            sb.append(Long.toHexString((word >>> shift) & 0xFFFF));
+        }
+        return sb.toString();
+    }
+
+    // Returns the 32-bit address as a non-negative long, or -1 if not dotted-quad.
+    private static long parseV4(CharSequence s, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255)
+                    return -1;
+            } else if (c == '.') {
+                if (value < 0 || octets == 3)
+                    return -1;
+                result = (result << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3)
+            return -1;
+        return (result << 8) | value;
+    }
+
+    private static boolean parseV6(CharSequence s, int start, int end, long[] out) {
+        if (end - start < 2)
+            return false;
+        // Collect up to 8 groups; remember where "::" was so we can shift the tail.
+        long hi = 0;
+        long lo = 0;
+        int groups = 0;
+        int gapAt = -1;
+        int i = start;
+
+        if (s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':')
+                return false;
+            gapAt = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            if (groups == 8)
+                return false;
+
+            // Embedded IPv4 tail, e.g. ::ffff:1.2.3.4 — only valid in the last 32 bits.
+            int dot = -1;
+            for (int j = i; j < end && s.charAt(j) != ':'; j++) {
+                if (s.charAt(j) == '.') {
+                    dot = j;
+                    break;
+                }
+            }
+            if (dot >= 0) {
+                long v4 = parseV4(s, i, end);
+                if (v4 < 0 || groups > 6)
+                    return false;
+                for (int half = 0; half < 2; half++, groups++) {
+                    long v = half == 0 ? v4 >>> 16 : v4 & 0xFFFF;
+                    if (groups < 4)
+                        hi |= v << (48 - groups * 16);
+                    else
+                        lo |= v << (48 - (groups - 4) * 16);
+                }
+                break;
+            }
+
+            int value = 0;
+            int digits = 0;
+            while (i < end && s.charAt(i) != ':') {
+                int d = Character.digit(s.charAt(i), 16);
+                if (d < 0 || ++digits > 4)
+                    return false;
+                value = (value << 4) | d;
+                i++;
+            }
+            if (digits == 0)
+                return false;
+            if (groups < 4)
+                hi |= (long) value << (48 - groups * 16);
+            else
+                lo |= (long) value << (48 - (groups - 4) * 16);
+            groups++;
+
+            if (i < end) {
+                i++; // skip ':'
+                if (i < end && s.charAt(i) == ':') {
+                    if (gapAt >= 0)
+                        return false;
+                    gapAt = groups;
+                    i++;
+                } else if (i == end) {
+                    return false; // trailing single ':'
+                }
+            }
+        }
+
+        if (gapAt < 0) {
+            if (groups != 8)
+                return false;
+        } else {
+            if (groups > 7)
+                return false;
+            // Shift the groups after the gap to the end of the address.
+            int shiftGroups = 8 - groups;
+            long newHi = 0;
+            long newLo = 0;
+            for (int g = 0; g < groups; g++) {
+                int v = (int) ((g < 4 ? hi >>> (48 - g * 16) : lo >>> (48 - (g - 4) * 16)) & 0xFFFF);
+                int dst = g < gapAt ? g : g + shiftGroups;
+                if (dst < 4)
+                    newHi |= (long) v << (48 - dst * 16);
+                else
+                    newLo |= (long) v << (48 - (dst - 4) * 16);
+            }
+            hi = newHi;
+            lo = newLo;
+        }
+        out[0] = hi;
+        out[1] = lo;
+        return true;
+    }
+
+    // FNV-1a over the UTF-16 code units, then a murmur finalizer for avalanche.
+    private static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,41 @@
+package net.bearcott.passwordmod.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe count / total / max of a timed operation, in nanoseconds. Cheap enough
+ * to record from the server thread on every call.
+ */
+public class LatencyStat {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public long meanNanos() {
+        long n = count();
+        return n == 0 ? 0 : totalNanos() / n;
+    }
+
+    public String summary() {
+        return String.format("n=%d mean=%.3fms max=%.3fms", count(), meanNanos() / 1e6, maxNanos() / 1e6);
+    }
+}
@@ -0,0 +1,110 @@
+package net.bearcott.passwordmod.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU + TTL cache of IP → location with single-flight loading: concurrent
+ * callers for the same IP wait on one in-flight lookup instead of each doing their own.
+ * Failed lookups (the loader returned {@link Helpers.Location#unknown()}) are cached
+ * too, but only briefly, so a flaky origin isn't hammered and recovers quickly.
+ */
+public class LocationCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long failureTtlMillis;
+    private final Function<String, CompletableFuture<Helpers.Location>> loader;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Access-ordered for LRU; guarded by `this`. Only map bookkeeping happens under the
+    // lock — the load itself is asynchronous and completes outside it.
+    private final LinkedHashMap<String, Entry> entries;
+
+    private static final class Entry {
+        final CompletableFuture<Helpers.Location> value = new CompletableFuture<>();
+        volatile long expiresAt = Long.MAX_VALUE; // set once the load finishes
+    }
+
+    public LocationCache(int maxEntries, long ttlMillis, long failureTtlMillis,
+            Function<String, CompletableFuture<Helpers.Location>> loader) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.failureTtlMillis = failureTtlMillis;
+        this.loader = loader;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= LocationCache.this.maxEntries)
+                    return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /** Never blocks; the future completes when the (possibly shared) load does. */
+    public CompletableFuture<Helpers.Location> get(String ip) {
+        Entry entry;
+        boolean owner = false;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            entry = entries.get(ip);
+            if (entry != null && entry.expiresAt <= now) {
+                entries.remove(ip);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(ip, entry);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        Entry loading = entry;
+        CompletableFuture<Helpers.Location> load;
+        try {
+            load = loader.apply(ip);
+        } catch (RuntimeException e) {
+            load = CompletableFuture.completedFuture(null);
+        }
+        load.handle((loc, err) -> (err != null || loc == null) ? Helpers.Location.unknown() : loc)
+                .thenAccept(loc -> {
+                    boolean failed = loc.equals(Helpers.Location.unknown());
+                    loading.expiresAt = System.currentTimeMillis() + (failed ? failureTtlMillis : ttlMillis);
+                    loading.value.complete(loc);
+                });
+        return entry.value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+}
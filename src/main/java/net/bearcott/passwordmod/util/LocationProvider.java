@@ -0,0 +1,13 @@
+package net.bearcott.passwordmod.util;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves an IP string to a city/country. Providers are chained by
+ * {@link Helpers#fetchLocationData}; completing with null means "don't know", and the
+ * next provider in the chain is asked. Local providers just return a completed future.
+ */
+@FunctionalInterface
+public interface LocationProvider {
+    CompletableFuture<Helpers.Location> lookup(String ip);
+}
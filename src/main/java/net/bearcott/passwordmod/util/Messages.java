@@ -27,6 +27,21 @@ public class Messages {
     public static final String FATAL_ERROR = "§cUh Oh! Something went wrong, please contact an admin...";
     public static final String LOCKDOWN_DENIED = "§cNope! :3";
     public static final String DUPLICATE_LOGIN_DENIED = "§cSomeone is already logged into this account. Try again later.";
+    public static final String CONNECT_RATE_LIMITED = "§cToo many connection attempts. Try again in a minute.";
+    // (place-in-line, retry-seconds)
+    public static final String PENDING_QUEUED_FMT = "§eThe waiting room is full. §fYou're §e#%d§f in line — reconnect in %ds to keep your place.";
+    // (retry-seconds)
+    public static final String PENDING_FULL_FMT = "§cThe waiting room is full. Try again in %ds.";
+
+    // ============ /auth (admins) ============
+
+    public static final String CONFIG_RELOADED = "§aAuth config reloaded.";
+    // (reason)
+    public static final String CONFIG_NOT_RELOADED_FMT = "§cAuth config not reloaded: %s. The previous settings are still in effect.";
+    public static final String STATS_HEADER = "§6Auth stats (timers: count, mean, max):";
+    // (encoded hash)
+    public static final String PASSWORD_HASH_FMT = "§7Replace 'password=' in the config with: §fpassword_hash=%s";
+    public static final String NO_PASSWORD_SET = "§cNo password is configured.";
 
     // ============ Kick messages ============
 
@@ -53,6 +68,10 @@ public class Messages {
     // (name, advancement_title)
     public static final String WEBHOOK_ADVANCEMENT_AUTHORIZED_FMT = "🎖️ **%s** just made the advancement `%s`";
     public static final String WEBHOOK_ADVANCEMENT_UNAUTHORIZED_FMT = "⚠️ [UNAUTHORIZED!] **%s** just made the advancement `%s`";
+    // (name, count, comma-separated titles)
+    public static final String WEBHOOK_ADVANCEMENT_DIGEST_FMT = "🎖️ **%s** earned %d advancements: %s";
+    // (how many titles were left out)
+    public static final String WEBHOOK_ADVANCEMENT_DIGEST_MORE_FMT = " and %d more";
 
     // (ip, location-string); appended after any broadcast that includes an IP.
     public static final String WEBHOOK_IP_SUFFIX_FMT = "\n📍 IP: `%s` (%s)";
@@ -0,0 +1,106 @@
+package net.bearcott.passwordmod.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Named view over stats the subsystems already keep (LatencyStats, LongAdders, queue
+ * sizes). Nothing is sampled or copied in the background: every read goes straight to
+ * the source, so registering a metric costs nothing on the hot path.
+ *
+ * Rendered two ways: plain lines for /auth stats, and the Prometheus text format for
+ * the optional scrape endpoint.
+ */
+public class Metrics {
+    public static final String PREFIX = "one_password_auth_";
+
+    private enum Kind {
+        TIMER, COUNTER, GAUGE
+    }
+
+    // `labels` is a preformatted Prometheus label set (e.g. priority="auth") or empty;
+    // entries of one family must be registered back to back.
+    private record Entry(Kind kind, String family, String labels, String help, LatencyStat timer,
+            LongSupplier value) {
+    }
+
+    private static final List<Entry> ENTRIES = new CopyOnWriteArrayList<>();
+
+    /** A LatencyStat, exported as a summary in seconds plus its max. */
+    public static void timer(String family, String labels, String help, LatencyStat stat) {
+        ENTRIES.add(new Entry(Kind.TIMER, family, labels, help, stat, null));
+    }
+
+    /** Monotonic count (it may reset when its owner is reconfigured). */
+    public static void counter(String family, String labels, String help, LongSupplier value) {
+        ENTRIES.add(new Entry(Kind.COUNTER, family, labels, help, null, value));
+    }
+
+    public static void gauge(String family, String labels, String help, LongSupplier value) {
+        ENTRIES.add(new Entry(Kind.GAUGE, family, labels, help, null, value));
+    }
+
+    public static List<String> summaryLines() {
+        List<String> lines = new ArrayList<>(ENTRIES.size());
+        for (Entry e : ENTRIES) {
+            String name = e.labels().isEmpty() ? e.family() : e.family() + "{" + e.labels() + "}";
+            lines.add(name + ": " + (e.kind() == Kind.TIMER ? e.timer().summary() : e.value().getAsLong()));
+        }
+        return lines;
+    }
+
+    public static String prometheus() {
+        List<Entry> entries = List.copyOf(ENTRIES);
+        StringBuilder sb = new StringBuilder(4096);
+        for (int from = 0, to; from < entries.size(); from = to) {
+            Entry first = entries.get(from);
+            to = from + 1;
+            while (to < entries.size() && entries.get(to).family().equals(first.family()))
+                to++;
+            List<Entry> family = entries.subList(from, to);
+
+            switch (first.kind()) {
+                case TIMER -> {
+                    String name = PREFIX + first.family() + "_seconds";
+                    header(sb, name, first.help(), "summary");
+                    for (Entry e : family) {
+                        sample(sb, name + "_count", e.labels(), e.timer().count());
+                        sample(sb, name + "_sum", e.labels(), e.timer().totalNanos() / 1e9);
+                    }
+                    // Its own gauge family, since a summary has no max; the worst case is
+                    // usually what matters here.
+                    header(sb, name + "_max", first.help() + " (max)", "gauge");
+                    for (Entry e : family)
+                        sample(sb, name + "_max", e.labels(), e.timer().maxNanos() / 1e9);
+                }
+                case COUNTER -> {
+                    String name = PREFIX + first.family() + "_total";
+                    header(sb, name, first.help(), "counter");
+                    for (Entry e : family)
+                        sample(sb, name, e.labels(), e.value().getAsLong());
+                }
+                case GAUGE -> {
+                    String name = PREFIX + first.family();
+                    header(sb, name, first.help(), "gauge");
+                    for (Entry e : family)
+                        sample(sb, name, e.labels(), e.value().getAsLong());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, Object value) {
+        sb.append(name);
+        if (!labels.isEmpty())
+            sb.append('{').append(labels).append('}');
+        sb.append(' ').append(value).append('\n');
+    }
+}
@@ -1,15 +1,18 @@
 package net.bearcott.passwordmod.util;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-
-import com.google.gson.Gson;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import net.bearcott.passwordmod.AuthStorage;
+import net.bearcott.passwordmod.util.TaskScheduler.Priority;
 
 public class Notifications {
 
@@ -27,53 +30,89 @@ public class Notifications {
         }
     }
 
-    private static final int WEBHOOK_TIMEOUT_MS = 3000;
-    private static final Gson GSON = new Gson();
+    private static final long WEBHOOK_LINGER_MS = 250;
+
+    // One dispatcher (queue + rate-limit state) per webhook URL. Two threads: at most
+    // one send per URL is in flight, and there are only the public and admin URLs.
+    private static final ScheduledExecutorService WEBHOOK_SCHEDULER = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "one-password-auth/webhook");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Map<String, WebhookDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+
+    // Raw embed posts (server status) bypass the dispatchers; tracked so shutdown can
+    // wait for them.
+    private static final Set<CompletableFuture<Void>> PENDING_POSTS = ConcurrentHashMap.newKeySet();
 
-    public static void broadcast(String message, String ip, Target target, ExecutorService workerPool) {
+    public static WebhookDispatcher dispatcherFor(String url) {
+        return DISPATCHERS.computeIfAbsent(url,
+                u -> new WebhookDispatcher(u, HttpTransport::shared, WEBHOOK_SCHEDULER, WEBHOOK_LINGER_MS));
+    }
+
+    public static void broadcast(String message, String ip, Target target, TaskScheduler workerPool) {
+        // The admin channel carries security alerts; under overload the public feed is
+        // the first thing the worker pool sheds.
         if (target.toPublic)
-            postDiscordMessage(message, ip, AuthStorage.webhookUrl, workerPool);
+            postDiscordMessage(message, ip, AuthStorage.config().webhookUrl(), Priority.FEED, workerPool);
         if (target.toAdmin)
-            postDiscordMessage(message, ip, AuthStorage.adminWebhookUrl, workerPool);
+            postDiscordMessage(message, ip, AuthStorage.config().adminWebhookUrl(), Priority.ALERT, workerPool);
     }
 
-    public static void postDiscordMessage(String message, String ip, String target, ExecutorService workerPool) {
-        Runnable send = () -> {
-            try {
-                Helpers.Location loc = (ip != null) ? Helpers.fetchLocationData(ip) : null;
-                String content = message
-                        + (loc != null && ip != null
-                                ? String.format(Messages.WEBHOOK_IP_SUFFIX_FMT, ip, loc.full())
-                                : "");
-                // Use Gson to build the payload — naive string escaping missed backslashes
-                // and control chars, which let malformed inputs break webhooks silently.
-                String body = GSON.toJson(Map.of("content", content));
-                sendDiscordWebhookSync(target, body);
-            } catch (Exception ignored) {
-            }
-        };
+    public static void postDiscordMessage(String message, String ip, String target, Priority priority,
+            TaskScheduler workerPool) {
+        if (target == null || target.isEmpty())
+            return;
+        // Queued rather than sent directly so bursts are batched and paced by Discord's
+        // rate limits; the dispatcher builds the JSON with Gson.
+        if (ip == null) {
+            dispatcherFor(target).enqueue(message);
+            return;
+        }
+        // The location lookup is async and cached; format on the worker pool once it lands.
+        Helpers.fetchLocationData(ip).thenAcceptAsync(loc -> dispatcherFor(target).enqueue(
+                message + String.format(Messages.WEBHOOK_IP_SUFFIX_FMT, ip, loc.full())),
+                workerPool != null ? workerPool.executor(priority) : Runnable::run);
+    }
 
-        if (workerPool != null)
-            workerPool.submit(send);
-        else
-            send.run();
+    /** Fire-and-forget post of a raw JSON body; failures are ignored. */
+    public static CompletableFuture<Void> sendDiscordWebhookAsync(String targetUrl, String jsonBody) {
+        if (targetUrl == null || targetUrl.isEmpty())
+            return CompletableFuture.completedFuture(null);
+        long start = System.nanoTime();
+        CompletableFuture<Void> post = HttpTransport.shared().postJson(targetUrl, jsonBody)
+                .<Void>handle((resp, err) -> {
+                    WebhookDispatcher.REQUEST_LATENCY.record(System.nanoTime() - start);
+                    if (err != null || resp.statusCode() / 100 != 2)
+                        WebhookDispatcher.REQUEST_FAILURES.increment();
+                    return null;
+                });
+        PENDING_POSTS.add(post);
+        post.whenComplete((v, err) -> PENDING_POSTS.remove(post));
+        return post;
     }
 
-    public static void sendDiscordWebhookSync(String targetUrl, String jsonBody) {
-        try {
-            HttpURLConnection con = (HttpURLConnection) URI.create(targetUrl).toURL().openConnection();
-            con.setRequestMethod("POST");
-            con.addRequestProperty("Content-Type", "application/json");
-            con.addRequestProperty("User-Agent", "Java-Discord-Webhook");
-            con.setDoOutput(true);
-            con.setConnectTimeout(WEBHOOK_TIMEOUT_MS);
-            con.setReadTimeout(WEBHOOK_TIMEOUT_MS);
-            try (OutputStream os = con.getOutputStream()) {
-                os.write(jsonBody.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Waits for raw posts and every dispatcher queue to finish sending, giving up at
+     * {@code deadlineNanos} ({@link System#nanoTime()} clock). Returns true if all
+     * notifications went out in time.
+     */
+    public static boolean drain(long deadlineNanos) throws InterruptedException {
+        for (CompletableFuture<Void> post : List.copyOf(PENDING_POSTS)) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            try {
+                post.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException ignored) {
             }
-            con.getResponseCode();
-            con.disconnect();
-        } catch (Exception ignored) {
         }
+        for (WebhookDispatcher dispatcher : DISPATCHERS.values()) {
+            if (!dispatcher.awaitIdle(deadlineNanos))
+                return false;
+        }
+        return true;
     }
 }
@@ -0,0 +1,102 @@
+package net.bearcott.passwordmod.util;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 hash of the shared password, stored in the config as
+ * {@code pbkdf2-sha256$<iterations>$<salt>$<hash>} (base64). The iteration count is
+ * the cost knob: each verify costs that many HMACs, which is what makes offline
+ * guessing expensive — and why verifies run on a small dedicated pool (see
+ * LoginPipeline) instead of wherever the attempt arrived.
+ *
+ * Immutable and thread-safe.
+ */
+public final class PasswordHash {
+    public static final int DEFAULT_ITERATIONS = 100_000;
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+    private final byte[] salt;
+    private final byte[] hash;
+
+    private PasswordHash(int iterations, byte[] salt, byte[] hash) {
+        this.iterations = iterations;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    /** Hashes {@code password} with a fresh random salt. */
+    public static PasswordHash create(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        int cost = Math.max(1, iterations);
+        return new PasswordHash(cost, salt, derive(password, salt, cost));
+    }
+
+    /** Parses the config form; null if {@code encoded} is malformed. */
+    public static PasswordHash parse(String encoded) {
+        String[] parts = encoded.trim().split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX))
+            return null;
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] hash = Base64.getDecoder().decode(parts[3]);
+            if (iterations < 1 || salt.length == 0 || hash.length == 0)
+                return null;
+            return new PasswordHash(iterations, salt, hash);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    /** Runs the full KDF, then compares in constant time. */
+    public boolean verify(String candidate) {
+        byte[] derived = derive(candidate, salt, iterations, hash.length * 8);
+        try {
+            return MessageDigest.isEqual(derived, hash);
+        } finally {
+            Arrays.fill(derived, (byte) 0);
+        }
+    }
+
+    // --------- KDF ---------
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        return derive(password, salt, iterations, HASH_BITS);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int bits) {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // PBKDF2WithHmacSHA256 is a required algorithm on every Java 8+ runtime.
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+}
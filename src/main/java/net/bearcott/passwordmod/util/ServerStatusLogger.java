@@ -3,27 +3,30 @@ package net.bearcott.passwordmod.util;
 import net.bearcott.passwordmod.AuthStorage;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 
+import java.util.concurrent.TimeUnit;
+
 public class ServerStatusLogger {
-    private static boolean isStoppingGracefully = false;
+    // The JVM halts once shutdown hooks return, so the crash notice (and anything still
+    // queued) gets this long to go out.
+    private static final long CRASH_NOTIFY_TIMEOUT_MS = 2000;
+
+    // Written on the server thread, read from the shutdown hook thread.
+    private static volatile boolean isStoppingGracefully = false;
 
     public static void register() {
+        // These run on the server thread, so the posts are fire-and-forget; a slow
+        // Discord must not hold up startup or shutdown. SERVER_STOPPED drains them.
+
         // 1. Server Started Event
-        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
-            String json = String.format(
-                    "{\"embeds\": [{\"title\": \"%s\",\"description\": \"%s\",\"color\": %d,\"timestamp\": \"%s\"}]}",
-                    Messages.SERVER_ONLINE_TITLE, Messages.SERVER_STARTED_DESC, 0x57F287,
-                    java.time.Instant.now().toString());
-            Notifications.sendDiscordWebhookSync(AuthStorage.adminWebhookUrl, json);
-        });
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> Notifications.sendDiscordWebhookAsync(
+                AuthStorage.config().adminWebhookUrl(),
+                embedJson(Messages.SERVER_ONLINE_TITLE, Messages.SERVER_STARTED_DESC, 0x57F287)));
 
         // 2. Server Stopping Event (Graceful Shutdown)
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
             isStoppingGracefully = true;
-            String json = String.format(
-                    "{\"embeds\": [{\"title\": \"%s\",\"description\": \"%s\",\"color\": %d,\"timestamp\": \"%s\"}]}",
-                    Messages.SERVER_STOPPING_TITLE, Messages.SERVER_STOPPING_DESC, 0xE67E22,
-                    java.time.Instant.now().toString());
-            Notifications.sendDiscordWebhookSync(AuthStorage.adminWebhookUrl, json);
+            Notifications.sendDiscordWebhookAsync(AuthStorage.config().adminWebhookUrl(),
+                    embedJson(Messages.SERVER_STOPPING_TITLE, Messages.SERVER_STOPPING_DESC, 0xE67E22));
         });
 
         // 3. JVM Shutdown Hook (Catch Crashes/Kills)
@@ -32,13 +35,21 @@ public class ServerStatusLogger {
             // likely a crash or a hard kill.
             if (!isStoppingGracefully) {
                 System.out.println("AuthMod: Detected non-graceful shutdown!");
-                String json = String.format(
-                        "{\"embeds\": [{\"title\": \"%s\",\"description\": \"%s\",\"color\": %d,\"timestamp\": \"%s\"}]}",
-                        Messages.SERVER_CRASHED_TITLE, Messages.SERVER_CRASHED_DESC, 0xED4245,
-                        java.time.Instant.now().toString());
-                Notifications.sendDiscordWebhookSync(AuthStorage.adminWebhookUrl, json);
+                Notifications.sendDiscordWebhookAsync(AuthStorage.config().adminWebhookUrl(),
+                        embedJson(Messages.SERVER_CRASHED_TITLE, Messages.SERVER_CRASHED_DESC, 0xED4245));
+                try {
+                    Notifications.drain(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CRASH_NOTIFY_TIMEOUT_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
         }));
     }
 
-}
\ No newline at end of file
+    static String embedJson(String title, String description, int color) {
+        return String.format(
+                "{\"embeds\": [{\"title\": \"%s\",\"description\": \"%s\",\"color\": %d,\"timestamp\": \"%s\"}]}",
+                title, description, color, java.time.Instant.now().toString());
+    }
+
+}
@@ -0,0 +1,198 @@
+package net.bearcott.passwordmod.util;
+
+import net.bearcott.passwordmod.PasswordMod;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size worker pool with a bounded, prioritized queue. Replaces a cached thread
+ * pool, which under a bot flood would spawn one thread per queued task.
+ *
+ * Each priority may only fill the queue up to its own share of the capacity, so when
+ * the queue backs up the public feed is refused first, then admin alerts, and
+ * auth-critical work keeps the last slots. A task that is over its share may evict the
+ * oldest task of a lower priority instead of being rejected.
+ *
+ * Network I/O is non-blocking ({@link HttpTransport}), so tasks here are short and
+ * CPU-bound; per-destination concurrency is capped by the transport and by each
+ * {@link WebhookDispatcher}, not here.
+ */
+public class TaskScheduler {
+
+    public enum Priority {
+        AUTH(1.0),   // login verification and anything a locked player is waiting on
+        ALERT(0.75), // admin/security notifications
+        FEED(0.5);   // public activity feed
+
+        final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final String name;
+    private final int capacity;
+    private final Thread[] workers;
+
+    // Guarded by `this`.
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Task>[] queues = new ArrayDeque[PRIORITIES.length];
+    private int queued;
+    private boolean shutdown;
+
+    private final LongAdder[] rejected = new LongAdder[PRIORITIES.length];
+    private final LongAdder[] shed = new LongAdder[PRIORITIES.length];
+    private final LatencyStat[] queueWait = new LatencyStat[PRIORITIES.length];
+
+    private record Task(Runnable body, long enqueuedAt) {
+    }
+
+    public TaskScheduler(String name, int threads, int capacity) {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            queues[i] = new ArrayDeque<>();
+            rejected[i] = new LongAdder();
+            shed[i] = new LongAdder();
+            queueWait[i] = new LatencyStat();
+        }
+        this.workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::runWorker, name);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /** Queues {@code task}; returns false (and counts a rejection) if it was refused. */
+    public boolean execute(Priority priority, Runnable task) {
+        synchronized (this) {
+            if (shutdown) {
+                rejected[priority.ordinal()].increment();
+                return false;
+            }
+            if (queued >= limitFor(priority) && !shedBelow(priority)) {
+                rejected[priority.ordinal()].increment();
+                return false;
+            }
+            queues[priority.ordinal()].addLast(new Task(task, System.nanoTime()));
+            queued++;
+            notify();
+        }
+        return true;
+    }
+
+    /** Adapter for APIs that take an {@link Executor}; refused tasks are dropped and counted. */
+    public Executor executor(Priority priority) {
+        return task -> execute(priority, task);
+    }
+
+    /** Stops accepting work; already queued tasks still run. */
+    public synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    /** Waits until every worker has drained the queue and exited, or the timeout passes. */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+            if (worker.isAlive())
+                return false;
+        }
+        return true;
+    }
+
+    // --------- Stats ---------
+
+    public synchronized int queued(Priority priority) {
+        return queues[priority.ordinal()].size();
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    public long rejected(Priority priority) {
+        return rejected[priority.ordinal()].sum();
+    }
+
+    public long shed(Priority priority) {
+        return shed[priority.ordinal()].sum();
+    }
+
+    public LatencyStat queueWait(Priority priority) {
+        return queueWait[priority.ordinal()];
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder(name).append(": ");
+        for (Priority p : PRIORITIES) {
+            sb.append(p).append("[queued=").append(queued(p))
+                    .append(" rejected=").append(rejected(p))
+                    .append(" shed=").append(shed(p))
+                    .append(" wait ").append(queueWait(p).summary()).append("] ");
+        }
+        return sb.toString().trim();
+    }
+
+    // --------- Internals ---------
+
+    private int limitFor(Priority priority) {
+        return Math.max(1, (int) (capacity * priority.share));
+    }
+
+    // Makes room for `priority` by dropping the oldest task of the lowest priority below
+    // it. Called with the lock held.
+    private boolean shedBelow(Priority priority) {
+        for (int i = PRIORITIES.length - 1; i > priority.ordinal(); i--) {
+            if (queues[i].pollFirst() != null) {
+                queued--;
+                shed[i].increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWorker() {
+        while (true) {
+            Task task;
+            int priority = -1;
+            synchronized (this) {
+                while (queued == 0 && !shutdown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Only exit through shutdown(); stray interrupts are ignored.
+                    }
+                }
+                if (queued == 0)
+                    return; // shut down and drained
+                task = null;
+                for (int i = 0; i < PRIORITIES.length && task == null; i++) {
+                    task = queues[i].pollFirst();
+                    priority = i;
+                }
+                queued--;
+            }
+
+            queueWait[priority].record(System.nanoTime() - task.enqueuedAt());
+            try {
+                task.body().run();
+            } catch (Throwable t) {
+                PasswordMod.LOGGER.error("Background task failed on {}", name, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.bearcott.passwordmod.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size, lock-free table of token buckets keyed by a 128-bit address.
+ *
+ * Each bucket is one long updated by CAS:
+ *
+ * <pre>
+ *   [ fingerprint:24 | last refill, 10 ms ticks:24 | tokens, 1/256ths:16 ]
+ * </pre>
+ *
+ * The table is split into stripes of {@code WAYS} slots; a key only ever lives in its
+ * own stripe, so a lookup reads at most eight adjacent longs and threads contending on
+ * different stripes never touch the same cache lines. A new key takes an empty slot,
+ * else one idle for longer than {@code idleMillis} (which would have refilled to full
+ * anyway, so reusing it loses nothing), else the stripe's least recently used slot.
+ * {@link #sweep} clears idle slots so timestamps never live long enough to wrap.
+ */
+public class TokenBucketTable {
+    private static final int WAYS = 8;
+    private static final int TOKEN_BITS = 16;
+    private static final int TIME_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final int FP_SHIFT = TOKEN_BITS + TIME_BITS;
+    private static final long FP_MASK = (1L << (64 - FP_SHIFT)) - 1;
+    private static final int UNIT = 256; // one token
+    private static final long TICK_MS = 10;
+
+    private final AtomicLongArray slots;
+    private final int stripeMask;
+    private final long capacityUnits;
+    private final double unitsPerTick;
+    private final long idleTicks;
+    private final long originMillis = System.currentTimeMillis();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param stripes        rounded up to a power of two
+     * @param burst          bucket capacity in tokens (max 255)
+     * @param refillPerMinute tokens added per minute
+     * @param idleMillis     after this long untouched a bucket is full again and its
+     *                       slot may be reused
+     */
+    public TokenBucketTable(int stripes, int burst, double refillPerMinute, long idleMillis) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.slots = new AtomicLongArray(n * WAYS);
+        this.stripeMask = n - 1;
+        this.capacityUnits = Math.min(255, Math.max(1, burst)) * (long) UNIT;
+        this.unitsPerTick = Math.max(0, refillPerMinute) * UNIT * TICK_MS / 60_000.0;
+        this.idleTicks = Math.min(TIME_MASK / 2, Math.max(1, idleMillis / TICK_MS));
+    }
+
+    /** Takes one token for {@code (hi, lo)}; false if its bucket is empty. */
+    public boolean tryAcquire(long hi, long lo) {
+        long h = IpAddresses.mix(hi ^ IpAddresses.mix(lo));
+        int base = ((int) h & stripeMask) * WAYS;
+        long fp = ((h >>> 40) & FP_MASK) | 1; // never 0, so 0 always means empty
+        long now = nowTicks();
+
+        outer:
+        while (true) {
+            int victim = -1;
+            long victimState = 0;
+            long victimAge = -1;
+
+            for (int i = base; i < base + WAYS; i++) {
+                long state = slots.get(i);
+                if (state != 0 && (state >>> FP_SHIFT) == fp) {
+                    // Existing bucket: refill for the elapsed time, then take a token.
+                    while (true) {
+                        long elapsed = (now - ((state >>> TOKEN_BITS) & TIME_MASK)) & TIME_MASK;
+                        long tokens = Math.min(capacityUnits,
+                                (state & TOKEN_MASK) + (long) (elapsed * unitsPerTick));
+                        if (elapsed >= idleTicks)
+                            tokens = capacityUnits;
+                        if (tokens < UNIT) {
+                            denied.increment();
+                            return false;
+                        }
+                        if (slots.compareAndSet(i, state, pack(fp, now, tokens - UNIT))) {
+                            allowed.increment();
+                            return true;
+                        }
+                        state = slots.get(i);
+                        if (state == 0 || (state >>> FP_SHIFT) != fp)
+                            continue outer; // evicted under us; start over
+                    }
+                }
+                long age = state == 0 ? Long.MAX_VALUE : (now - ((state >>> TOKEN_BITS) & TIME_MASK)) & TIME_MASK;
+                if (age > victimAge) {
+                    victim = i;
+                    victimState = state;
+                    victimAge = age;
+                }
+            }
+
+            // New key: it starts with a full bucket, less the token it's taking now.
+            if (slots.compareAndSet(victim, victimState, pack(fp, now, capacityUnits - UNIT))) {
+                if (victimState != 0 && victimAge < idleTicks)
+                    evicted.increment();
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    /** Clears every bucket idle for longer than the idle timeout. */
+    public void sweep() {
+        long now = nowTicks();
+        for (int i = 0; i < slots.length(); i++) {
+            long state = slots.get(i);
+            if (state != 0 && ((now - ((state >>> TOKEN_BITS) & TIME_MASK)) & TIME_MASK) >= idleTicks)
+                slots.compareAndSet(i, state, 0);
+        }
+    }
+
+    public long allowed() {
+        return allowed.sum();
+    }
+
+    public long denied() {
+        return denied.sum();
+    }
+
+    /** Live (non-idle) buckets pushed out by a full stripe. */
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    private long nowTicks() {
+        return ((System.currentTimeMillis() - originMillis) / TICK_MS) & TIME_MASK;
+    }
+
+    private static long pack(long fp, long ticks, long tokens) {
+        return fp << FP_SHIFT | (ticks & TIME_MASK) << TOKEN_BITS | tokens;
+    }
+}
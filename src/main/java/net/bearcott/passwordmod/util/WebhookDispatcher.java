@@ -0,0 +1,251 @@
+package net.bearcott.passwordmod.util;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import net.bearcott.passwordmod.PasswordMod;
+
+/**
+ * One queue per webhook URL. Messages linger briefly so a burst (join storm,
+ * brute-force spam) is packed into as few Discord requests as the 2000-char content
+ * limit allows, and sends are paced by Discord's rate-limit headers: a 429 requeues
+ * the batch and waits out Retry-After instead of dropping it.
+ *
+ * At most one send per URL is in flight; everything else waits in the queue. Sends go
+ * through the shared non-blocking {@link HttpTransport}, so no thread waits on Discord;
+ * the transport is looked up per send, so a config reload that replaces it takes effect
+ * on the next batch. The URL and transport are constructor arguments, so a dispatcher
+ * can be pointed at a local HTTP stub.
+ */
+public class WebhookDispatcher {
+    public static final int MAX_CONTENT_CHARS = 2000;
+    private static final int MAX_QUEUED_MESSAGES = 500;
+    private static final int MAX_SERVER_ERROR_RETRIES = 3;
+    private static final Gson GSON = new Gson();
+
+    // Across every dispatcher (and Notifications' raw posts): time to a response, and
+    // requests that got neither a 2xx nor a 429 back.
+    public static final LatencyStat REQUEST_LATENCY = new LatencyStat();
+    public static final LongAdder REQUEST_FAILURES = new LongAdder();
+
+    private final String url;
+    private final Supplier<HttpTransport> transport;
+    private final ScheduledExecutorService scheduler;
+    private final long lingerMs;
+
+    // Guarded by `this`.
+    private final Deque<String> queue = new ArrayDeque<>();
+    private boolean flushScheduled;
+    private long notBeforeMillis; // earliest time the next request may go out
+    private int serverErrorRetries;
+
+    private final LongAdder sentRequests = new LongAdder();
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public WebhookDispatcher(String url, Supplier<HttpTransport> transport, ScheduledExecutorService scheduler,
+            long lingerMs) {
+        this.url = url;
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.lingerMs = lingerMs;
+    }
+
+    public void enqueue(String content) {
+        long delay;
+        synchronized (this) {
+            if (queue.size() >= MAX_QUEUED_MESSAGES) {
+                // Under a sustained flood keep the newest events; the oldest are least useful.
+                queue.pollFirst();
+                dropped.increment();
+            }
+            queue.addLast(truncate(content));
+            if (flushScheduled)
+                return;
+            flushScheduled = true;
+            delay = Math.max(lingerMs, notBeforeMillis - System.currentTimeMillis());
+        }
+        schedule(delay);
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Waits until the queue is empty and no send is in flight, or until
+     * {@code deadlineNanos} ({@link System#nanoTime()} clock). Returns true if idle.
+     */
+    public synchronized boolean awaitIdle(long deadlineNanos) throws InterruptedException {
+        while (flushScheduled || !queue.isEmpty()) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    public long sentRequests() {
+        return sentRequests.sum();
+    }
+
+    public long sentMessages() {
+        return sentMessages.sum();
+    }
+
+    public long rateLimited() {
+        return rateLimited.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // --------- Sending ---------
+
+    private void schedule(long delayMs) {
+        scheduler.schedule(this::flush, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        Deque<String> batch = new ArrayDeque<>();
+        StringBuilder content = new StringBuilder();
+        synchronized (this) {
+            long wait = notBeforeMillis - System.currentTimeMillis();
+            if (wait > 0) {
+                schedule(wait);
+                return;
+            }
+            pack(queue, batch, content);
+            if (batch.isEmpty()) {
+                flushScheduled = false;
+                notifyAll();
+                return;
+            }
+        }
+
+        String body = payload(content.toString());
+        long start = System.nanoTime();
+        transport.get().postJson(url, body).whenComplete((resp, err) -> {
+            REQUEST_LATENCY.record(System.nanoTime() - start);
+            onResponse(batch, toResponse(resp, err));
+        });
+    }
+
+    private void onResponse(Deque<String> batch, Response response) {
+        long now = System.currentTimeMillis();
+        long nextDelay = lingerMs;
+
+        synchronized (this) {
+            if (response.status != 429 && (response.status < 200 || response.status >= 300))
+                REQUEST_FAILURES.increment();
+            if (response.status == 429 || (response.status >= 500 && serverErrorRetries < MAX_SERVER_ERROR_RETRIES)) {
+                // Put the batch back at the front, in its original order.
+                while (!batch.isEmpty())
+                    queue.addFirst(batch.pollLast());
+                if (response.status == 429) {
+                    rateLimited.increment();
+                    nextDelay = Math.max(response.retryAfterMs, 1000);
+                } else {
+                    serverErrorRetries++;
+                    nextDelay = 1000L << serverErrorRetries;
+                }
+                notBeforeMillis = now + nextDelay;
+            } else {
+                if (response.status >= 200 && response.status < 300) {
+                    sentRequests.increment();
+                    sentMessages.add(batch.size());
+                } else {
+                    dropped.add(batch.size());
+                    PasswordMod.LOGGER.warn("Discord webhook rejected {} message(s) with HTTP {}",
+                            batch.size(), response.status);
+                }
+                serverErrorRetries = 0;
+                // Bucket exhausted: hold the next request until it resets.
+                if (response.remaining == 0 && response.resetAfterMs > 0)
+                    notBeforeMillis = now + response.resetAfterMs;
+            }
+
+            if (queue.isEmpty()) {
+                flushScheduled = false;
+                notifyAll();
+                return;
+            }
+            nextDelay = Math.max(nextDelay, notBeforeMillis - now);
+        }
+        schedule(nextDelay);
+    }
+
+    // Moves messages from the head of `queue` into `batch`, in order, while they fit in
+    // one message's content; one message is always taken.
+    static void pack(Deque<String> queue, Deque<String> batch, StringBuilder content) {
+        while (!queue.isEmpty()) {
+            String next = queue.peekFirst();
+            int extra = (content.length() == 0 ? 0 : 1) + next.length();
+            if (content.length() > 0 && content.length() + extra > MAX_CONTENT_CHARS)
+                break;
+            if (content.length() > 0)
+                content.append('\n');
+            content.append(next);
+            batch.addLast(queue.pollFirst());
+        }
+    }
+
+    static String payload(String content) {
+        return GSON.toJson(Map.of("content", content));
+    }
+
+    private record Response(int status, long retryAfterMs, int remaining, long resetAfterMs) {
+    }
+
+    private static Response toResponse(HttpResponse<String> resp, Throwable err) {
+        // Network failure: treat like a 5xx so it gets a bounded number of retries.
+        if (err != null || resp == null)
+            return new Response(599, 0, -1, 0);
+
+        int status = resp.statusCode();
+        long retryAfterMs = secondsHeaderToMillis(resp.headers().firstValue("Retry-After").orElse(null));
+        if (status == 429) {
+            // The JSON body's retry_after is more precise than the header when present.
+            try {
+                JsonObject body = GSON.fromJson(resp.body(), JsonObject.class);
+                if (body != null && body.has("retry_after"))
+                    retryAfterMs = (long) Math.ceil(body.get("retry_after").getAsDouble() * 1000);
+            } catch (RuntimeException ignored) {
+            }
+        }
+        int remaining = (int) parseOr(resp.headers().firstValue("X-RateLimit-Remaining").orElse(null), -1);
+        long resetAfterMs = secondsHeaderToMillis(resp.headers().firstValue("X-RateLimit-Reset-After").orElse(null));
+        return new Response(status, retryAfterMs, remaining, resetAfterMs);
+    }
+
+    private static long secondsHeaderToMillis(String value) {
+        double seconds = parseOr(value, 0);
+        return seconds > 0 ? (long) Math.ceil(seconds * 1000) : 0;
+    }
+
+    private static double parseOr(String value, double fallback) {
+        if (value == null)
+            return fallback;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String truncate(String content) {
+        return content.length() <= MAX_CONTENT_CHARS ? content : content.substring(0, MAX_CONTENT_CHARS - 1) + "…";
+    }
+}
@@ -0,0 +1,82 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.IpAddresses;
+import net.bearcott.passwordmod.util.PasswordHash;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Whitelist aging across a restart, through AuthStorage's real load/sweep/shutdown
+ * against a scratch config directory, and an IPv6 login matching the same client's
+ * next connection. AuthStorage is static, so this is one JVM-wide
+ * scenario rather than independent cases.
+ */
+class AuthStorageWhitelistTest {
+    private static final int DAY = 24 * 60;
+
+    @Test
+    void expiredAndSightedPairsSurviveARestartAsWritten() throws IOException {
+        Path dir = Files.createTempDirectory("one-password-auth-test");
+        System.setProperty("one_password_auth.config_dir", dir.toString());
+        Files.writeString(dir.resolve("one_password_auth_config.properties"),
+                "password_hash=" + PasswordHash.create("test", 1000).encode() + "\nwhitelist_ttl_days=1\n",
+                StandardCharsets.UTF_8);
+
+        UUID expiredOpaque = UUID.randomUUID();
+        UUID expiredLegacy = UUID.randomUUID();
+        UUID sightedOpaque = UUID.randomUUID();
+        UUID sightedLegacy = UUID.randomUUID();
+        int now = WhitelistAging.nowMinute();
+        int stale = now - 3 * DAY;
+        int recent = now - 2 * 60; // inside the TTL, but old enough for a sighting to be written
+        // "[2001" is the truncated text vanilla reports for some IPv6 clients; the
+        // upper-case, uncompressed spelling is how an older or hand-edited file may have it.
+        Files.write(dir.resolve("one_password_auth_ip_whitelist.txt"), List.of(
+                "[2001|" + expiredOpaque + "|" + stale,
+                "2001:DB8::1|" + expiredLegacy + "|" + stale,
+                "[2001|" + sightedOpaque + "|" + recent,
+                "2001:DB8::2|" + sightedLegacy + "|" + recent), StandardCharsets.UTF_8);
+
+        AuthStorage.load();
+        AuthStorage.sweepWhitelist();
+        assertFalse(AuthStorage.isWhitelisted("[2001", expiredOpaque));
+        assertFalse(AuthStorage.isWhitelisted("2001:db8::1", expiredLegacy));
+        assertEquals(2, AuthStorage.whitelistExpired());
+        assertTrue(AuthStorage.isWhitelistedOnJoin("[2001", sightedOpaque));
+        assertTrue(AuthStorage.isWhitelistedOnJoin("2001:db8::2", sightedLegacy));
+
+        // Logging in stores the pair from the player's address; the next connection is
+        // checked from the socket's raw bytes, before there's a player to ask.
+        UUID v6Player = UUID.randomUUID();
+        InetSocketAddress v6 = new InetSocketAddress(InetAddress.getByName("2001:db8::3"), 50000);
+        AuthStorage.whitelist(IpAddresses.of(v6), v6Player);
+        assertTrue(ConnectionThrottle.isWhitelisted(v6, v6Player));
+        assertTrue(ConnectionThrottle.admit(v6, v6Player));
+        assertFalse(ConnectionThrottle.isWhitelisted(
+                new InetSocketAddress(InetAddress.getByName("2001:db8::4"), 50000), v6Player));
+        AuthStorage.shutdown();
+
+        // What the next start would load.
+        WhitelistJournal reopened = new WhitelistJournal(dir.resolve("one_password_auth_ip_whitelist.txt"),
+                dir.resolve("one_password_auth_ip_whitelist.journal"));
+        Map<String, Integer> pairs = reopened.readAll();
+        reopened.close();
+        assertEquals(3, pairs.size(), pairs.toString());
+        assertTrue(pairs.get("[2001|" + sightedOpaque) >= now, pairs.toString());
+        assertTrue(pairs.get("2001:db8:0:0:0:0:0:2|" + sightedLegacy) >= now, pairs.toString());
+        assertTrue(pairs.containsKey("2001:db8:0:0:0:0:0:3|" + v6Player), pairs.toString());
+    }
+}
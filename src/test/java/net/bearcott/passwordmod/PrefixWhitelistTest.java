@@ -0,0 +1,167 @@
+package net.bearcott.passwordmod;
+
+import net.bearcott.passwordmod.util.IpAddresses;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixWhitelistTest {
+    private static final UUID PLAYER = UUID.randomUUID();
+    private static final UUID OTHER = UUID.randomUUID();
+    private static final int NOT_FOUND = WhitelistIndex.NOT_FOUND;
+
+    private final PrefixWhitelist ranges = new PrefixWhitelist();
+
+    // cidr as parseCidr reads it: network with host bits zeroed, length over 128 bits.
+    private static long[] range(String cidr) {
+        long[] range = new long[4];
+        assertTrue(IpAddresses.parseCidr(cidr, range), cidr);
+        return new long[] {range[0], range[1], IpAddresses.cidrLength(range)};
+    }
+
+    private boolean add(UUID uuid, String cidr, int seen) {
+        long[] r = range(cidr);
+        return ranges.add(uuid, r[0], r[1], (int) r[2], seen);
+    }
+
+    private boolean remove(UUID uuid, String cidr) {
+        long[] r = range(cidr);
+        return ranges.remove(uuid, r[0], r[1], (int) r[2]);
+    }
+
+    private int seen(UUID uuid, String cidr) {
+        long[] r = range(cidr);
+        return ranges.seen(uuid, r[0], r[1], (int) r[2]);
+    }
+
+    private int match(UUID uuid, String address) {
+        long[] bits = new long[2];
+        assertTrue(IpAddresses.parse(address, bits), address);
+        return ranges.match(uuid, bits[0], bits[1]);
+    }
+
+    @Test
+    void longestMatchingPrefixWins() {
+        add(PLAYER, "10.0.0.0/8", 1);
+        add(PLAYER, "10.1.2.0/24", 2);
+        add(PLAYER, "2001:db8:1::/48", 3);
+        add(PLAYER, "2001:db8:1:2::/64", 4);
+
+        assertEquals(96 + 24, match(PLAYER, "10.1.2.3"));
+        assertEquals(96 + 8, match(PLAYER, "10.1.3.3"));
+        assertEquals(64, match(PLAYER, "2001:db8:1:2::99"));
+        assertEquals(48, match(PLAYER, "2001:db8:1:3::99"));
+    }
+
+    @Test
+    void missesOutsideEveryRangeAndForOtherPlayers() {
+        add(PLAYER, "10.0.0.0/8", 1);
+        add(PLAYER, "2001:db8:1::/48", 1);
+
+        assertEquals(-1, match(PLAYER, "11.0.0.1"));
+        assertEquals(-1, match(PLAYER, "2001:db8:2::1"));
+        assertEquals(-1, match(PLAYER, "::ffff:0:1")); // IPv4-mapped, outside 10/8
+        assertEquals(-1, match(OTHER, "10.0.0.1"));
+        assertEquals(-1, new PrefixWhitelist().match(PLAYER, 0, 0));
+    }
+
+    @Test
+    void insertSplitsSiblingsUnderABranchNode() {
+        // 10.1.2.0/24 and 10.1.3.0/24 diverge at bit 23 of the address: the second
+        // insert adds a /23 branch that isn't itself an entry.
+        assertTrue(add(PLAYER, "10.1.2.0/24", 1));
+        assertTrue(add(PLAYER, "10.1.3.0/24", 2));
+        assertFalse(add(PLAYER, "10.1.2.0/24", 3));
+
+        assertEquals(2, ranges.size());
+        assertEquals(1, seen(PLAYER, "10.1.2.0/24"));
+        assertEquals(2, seen(PLAYER, "10.1.3.0/24"));
+        assertEquals(NOT_FOUND, seen(PLAYER, "10.1.2.0/23"));
+        assertEquals(-1, match(PLAYER, "10.1.4.1"));
+
+        // Adding the branch's own prefix turns it into an entry.
+        assertTrue(add(PLAYER, "10.1.2.0/23", 4));
+        assertEquals(4, seen(PLAYER, "10.1.2.0/23"));
+        assertEquals(96 + 24, match(PLAYER, "10.1.3.1"));
+    }
+
+    @Test
+    void insertAboveAnExistingRange() {
+        add(PLAYER, "2001:db8:1:2::/64", 1);
+        add(PLAYER, "2001:db8::/32", 2);
+
+        assertEquals(64, match(PLAYER, "2001:db8:1:2::1"));
+        assertEquals(32, match(PLAYER, "2001:db8:ffff::1"));
+    }
+
+    @Test
+    void removeCollapsesBranchesAndKeepsTheRest() {
+        add(PLAYER, "10.1.2.0/24", 1);
+        add(PLAYER, "10.1.3.0/24", 2);
+        add(PLAYER, "10.0.0.0/8", 3);
+
+        assertTrue(remove(PLAYER, "10.1.2.0/24"));
+        assertFalse(remove(PLAYER, "10.1.2.0/24"));
+        assertFalse(remove(PLAYER, "10.1.2.0/23")); // the collapsed branch was never an entry
+        assertEquals(2, ranges.size());
+        assertEquals(96 + 8, match(PLAYER, "10.1.2.1"));
+        assertEquals(96 + 24, match(PLAYER, "10.1.3.1"));
+
+        assertTrue(remove(PLAYER, "10.0.0.0/8"));
+        assertEquals(-1, match(PLAYER, "10.1.2.1"));
+        assertEquals(96 + 24, match(PLAYER, "10.1.3.1"));
+
+        assertTrue(remove(PLAYER, "10.1.3.0/24"));
+        assertEquals(0, ranges.size());
+        assertEquals(-1, match(PLAYER, "10.1.3.1"));
+        // Re-adding after the UUID's trie emptied out starts a fresh one.
+        assertTrue(add(PLAYER, "10.1.3.0/24", 5));
+        assertEquals(96 + 24, match(PLAYER, "10.1.3.1"));
+    }
+
+    @Test
+    void touchUpdatesSeenOnlyForPresentRanges() {
+        add(PLAYER, "10.1.2.0/24", 1);
+        long[] r = range("10.1.2.0/24");
+
+        assertEquals(1, ranges.touch(PLAYER, r[0], r[1], (int) r[2], 7));
+        assertEquals(7, seen(PLAYER, "10.1.2.0/24"));
+        assertEquals(NOT_FOUND, ranges.touch(OTHER, r[0], r[1], (int) r[2], 8));
+    }
+
+    @Test
+    void agingKeysRoundTripEveryLength() {
+        long hi = 0x2001_0db8_1234_5678L, lo = 0x9abc_def0_1357_9bdfL;
+        for (int length = 0; length <= 127; length++) {
+            long netHi = hi & PrefixWhitelist.hiMask(length), netLo = lo & PrefixWhitelist.loMask(length);
+            long keyHi = PrefixWhitelist.keyHi(netHi, length), keyLo = PrefixWhitelist.keyLo(netLo, length);
+            assertEquals(length, PrefixWhitelist.keyLength(keyHi, keyLo), "length " + length);
+            assertEquals(netHi, length < 64 ? PrefixWhitelist.keyPrefix(keyHi) : keyHi, "hi at " + length);
+            assertEquals(netLo, length >= 64 ? PrefixWhitelist.keyPrefix(keyLo) : keyLo, "lo at " + length);
+        }
+    }
+
+    @Test
+    void agingKeyAtLength64MarksTheLowWord() {
+        long hi = 0x2001_0db8_0001_0002L;
+        assertEquals(hi, PrefixWhitelist.keyHi(hi, 64));
+        assertEquals(1L << 63, PrefixWhitelist.keyLo(0, 64));
+        assertEquals(64, PrefixWhitelist.keyLength(hi, 1L << 63));
+    }
+
+    @Test
+    void seenThroughTheAgingKey() {
+        add(PLAYER, "2001:db8:1:2::/64", 9);
+        long[] r = range("2001:db8:1:2::/64");
+        long keyHi = PrefixWhitelist.keyHi(r[0], 64), keyLo = PrefixWhitelist.keyLo(r[1], 64);
+
+        assertEquals(9, ranges.seen(PLAYER.getMostSignificantBits(), PLAYER.getLeastSignificantBits(), keyHi, keyLo));
+        remove(PLAYER, "2001:db8:1:2::/64");
+        assertEquals(NOT_FOUND,
+                ranges.seen(PLAYER.getMostSignificantBits(), PLAYER.getLeastSignificantBits(), keyHi, keyLo));
+    }
+}
@@ -0,0 +1,145 @@
+package net.bearcott.passwordmod;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WhitelistAgingTest {
+    private static final int HOUR = 60;
+    private static final int BASE = 480_000 * HOUR; // an hour boundary in 2024
+
+    private final WhitelistIndex index = new WhitelistIndex();
+    private final WhitelistAging aging = new WhitelistAging(index);
+
+    private void add(int id, int seenMinute) {
+        assertTrue(index.add(id, 0, 0, id, seenMinute));
+        aging.file(id, 0, 0, id, seenMinute);
+    }
+
+    private boolean present(int id) {
+        return index.contains(id, 0, 0, id);
+    }
+
+    private void sweep(int nowMinute, long ttlMinutes, int maxEntries) {
+        aging.sweep(nowMinute, ttlMinutes, maxEntries, (msb, lsb, hi, lo) -> index.remove(msb, lsb, hi, lo));
+    }
+
+    @Test
+    void expiresPairsUnseenForTheTtl() {
+        add(1, BASE);
+        add(2, BASE + 5 * HOUR);
+        add(3, BASE + 10 * HOUR);
+
+        sweep(BASE + 12 * HOUR, 6 * HOUR, 0);
+
+        assertFalse(present(1));
+        assertFalse(present(2));
+        assertTrue(present(3));
+        assertEquals(2, aging.expired());
+        assertEquals(0, aging.evicted());
+    }
+
+    @Test
+    void zeroTtlAndCapKeepEverything() {
+        add(1, BASE);
+        add(2, BASE + HOUR);
+
+        sweep(BASE + 10_000 * HOUR, 0, 0);
+
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void capEvictsLeastRecentlySeenFirst() {
+        for (int id = 1; id <= 10; id++)
+            add(id, BASE + id * HOUR);
+
+        sweep(BASE + 20 * HOUR, 0, 6);
+
+        assertEquals(6, index.size());
+        for (int id = 1; id <= 4; id++)
+            assertFalse(present(id), "pair " + id);
+        for (int id = 5; id <= 10; id++)
+            assertTrue(present(id), "pair " + id);
+        assertEquals(4, aging.evicted());
+        assertEquals(0, aging.expired());
+    }
+
+    @Test
+    void touchedPairIsRefiledUnderItsNewHour() {
+        add(1, BASE);
+        add(2, BASE);
+        index.touch(1, 0, 0, 1, BASE + 10 * HOUR);
+
+        sweep(BASE + 12 * HOUR, 6 * HOUR, 0);
+        assertTrue(present(1));
+        assertFalse(present(2));
+
+        // Still filed — under hour 10 now — so it expires on its new schedule.
+        sweep(BASE + 15 * HOUR, 6 * HOUR, 0);
+        assertTrue(present(1));
+        sweep(BASE + 16 * HOUR, 6 * HOUR, 0);
+        assertFalse(present(1));
+        assertEquals(2, aging.expired());
+    }
+
+    @Test
+    void touchedPairMovesToTheBackOfTheEvictionOrder() {
+        add(1, BASE);
+        add(2, BASE + HOUR);
+        add(3, BASE + 2 * HOUR);
+        index.touch(1, 0, 0, 1, BASE + 3 * HOUR);
+
+        sweep(BASE + 4 * HOUR, 0, 2);
+
+        assertTrue(present(1));
+        assertFalse(present(2));
+        assertTrue(present(3));
+    }
+
+    @Test
+    void revokedPairIsDroppedWithoutCountingAsExpired() {
+        add(1, BASE);
+        index.remove(1, 0, 0, 1);
+
+        sweep(BASE + 100 * HOUR, HOUR, 0);
+
+        assertEquals(0, aging.expired());
+    }
+
+    @Test
+    void sweepsAcrossAGapLongerThanTheWheel() {
+        // 1000 hours apart: several full rounds of the 256-hour wheel, both pairs
+        // filed in the same bucket's rounds.
+        add(1, BASE);
+        add(2, BASE + 1000 * HOUR);
+        add(3, BASE + 1024 * HOUR); // same slot as pair 1, four rounds on
+
+        sweep(BASE + 1100 * HOUR, 500 * HOUR, 0);
+        assertFalse(present(1));
+        assertTrue(present(2));
+        assertTrue(present(3));
+
+        sweep(BASE + 1500 * HOUR, 500 * HOUR, 0);
+        assertFalse(present(2));
+        assertTrue(present(3));
+
+        sweep(BASE + 1524 * HOUR, 500 * HOUR, 0);
+        assertFalse(present(3));
+        assertEquals(3, aging.expired());
+    }
+
+    @Test
+    void sweepWithNothingDueLeavesLaterPairsAlone() {
+        add(1, BASE + 300 * HOUR);
+
+        sweep(BASE, HOUR, 0); // the clock went back; nothing is old enough yet
+        sweep(BASE + 300 * HOUR + 59, HOUR, 0);
+        assertTrue(present(1));
+
+        sweep(BASE + 301 * HOUR, HOUR, 0);
+        assertFalse(present(1));
+    }
+}
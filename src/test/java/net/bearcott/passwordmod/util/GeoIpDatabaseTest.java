@@ -0,0 +1,90 @@
+package net.bearcott.passwordmod.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Compiles a small CSV into a scratch directory and looks up around every range edge. */
+class GeoIpDatabaseTest {
+    private static Path csv;
+    private static GeoIpDatabase db;
+
+    @BeforeAll
+    static void compile() throws IOException {
+        csv = Files.createTempDirectory("one-password-auth-geoip").resolve("geoip.csv");
+        Files.write(csv, List.of(
+                "# cidr,city,country",
+                "192.168.1.0/24,Lan,ZZ",
+                "10.0.0.0/8,Springfield, IL,US", // the city keeps its comma
+                "not-a-range,Nowhere,ZZ",
+                "",
+                "2001:db8::/48,Berlin,DE",
+                "2001:db8:2::/48,Paris,FR"), StandardCharsets.UTF_8);
+        db = GeoIpDatabase.open(csv);
+    }
+
+    private static void assertCity(String expected, String ip) {
+        Helpers.Location location = db.find(ip);
+        assertEquals(expected, location == null ? null : location.city(), ip);
+    }
+
+    @Test
+    void compilesEveryWellFormedLine() {
+        assertEquals(4, db.size());
+        assertTrue(Files.exists(csv.resolveSibling("geoip.csv.bin")));
+    }
+
+    @Test
+    void ipv4RangeBoundaries() {
+        assertCity(null, "9.255.255.255");
+        assertCity("Springfield, IL", "10.0.0.0");
+        assertCity("Springfield, IL", "10.255.255.255");
+        assertCity(null, "11.0.0.0");
+
+        assertCity(null, "192.168.0.255");
+        assertCity("Lan", "192.168.1.0");
+        assertCity("Lan", "192.168.1.255");
+        assertCity(null, "192.168.2.0");
+
+        assertEquals(new Helpers.Location("Springfield, IL", "US"), db.find("10.1.2.3"));
+        assertCity("Lan", "::ffff:192.168.1.7"); // IPv4-mapped spelling, same address
+    }
+
+    @Test
+    void ipv6RangeBoundaries() {
+        assertCity(null, "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff");
+        assertCity("Berlin", "2001:db8::");
+        assertCity("Berlin", "2001:db8:0:ffff:ffff:ffff:ffff:ffff");
+        assertCity(null, "2001:db8:1::"); // the gap between the two ranges
+        assertCity(null, "2001:db8:1:ffff:ffff:ffff:ffff:ffff");
+        assertCity("Paris", "2001:db8:2::");
+        assertCity("Paris", "2001:db8:2:ffff:ffff:ffff:ffff:ffff");
+        assertCity(null, "2001:db8:3::");
+
+        assertEquals("FR", db.find("2001:db8:2::1").country());
+    }
+
+    @Test
+    void missesBeforeTheFirstRangeAndOnBadInput() {
+        assertCity(null, "::1");
+        assertCity(null, "0.0.0.0");
+        assertCity(null, "not an address");
+        assertNull(db.find(null));
+    }
+
+    @Test
+    void reopensTheCompiledFile() throws IOException {
+        GeoIpDatabase reopened = GeoIpDatabase.open(csv);
+        assertEquals(db.size(), reopened.size());
+        assertEquals(db.find("2001:db8::1"), reopened.find("2001:db8::1"));
+    }
+}
@@ -0,0 +1,87 @@
+package net.bearcott.passwordmod.util;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Drives a dispatcher against a local stub of a Discord webhook. */
+class WebhookDispatcherTest {
+
+    private record Request(long atMillis, String content) {
+    }
+
+    @Test
+    void rateLimitedBatchIsKeptAndRetriedInOrder() throws Exception {
+        List<Request> requests = new CopyOnWriteArrayList<>();
+        AtomicInteger responses = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/webhook", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(new Request(System.currentTimeMillis(),
+                    JsonParser.parseString(body).getAsJsonObject().get("content").getAsString()));
+            if (responses.getAndIncrement() == 0) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, "{\"message\": \"You are being rate limited.\"}");
+            } else {
+                respond(exchange, 204, null);
+            }
+        });
+        server.start();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                    + "/webhook";
+            HttpTransport transport = new HttpTransport(5000, 1);
+            WebhookDispatcher dispatcher = new WebhookDispatcher(url, () -> transport, scheduler, 50);
+
+            // 600 chars each: three fit in one 2000-char message, four don't.
+            List<String> messages = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+                messages.add(Integer.toString(i).repeat(600));
+            messages.forEach(dispatcher::enqueue);
+
+            assertTrue(dispatcher.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+
+            assertEquals(3, requests.size());
+            String firstBatch = String.join("\n", messages.subList(0, 3));
+            assertEquals(firstBatch, requests.get(0).content());
+            assertEquals(firstBatch, requests.get(1).content()); // the 429'd batch, unchanged
+            assertEquals(String.join("\n", messages.subList(3, 5)), requests.get(2).content());
+            for (Request request : requests)
+                assertTrue(request.content().length() <= WebhookDispatcher.MAX_CONTENT_CHARS);
+            assertTrue(requests.get(1).atMillis() - requests.get(0).atMillis() >= 900,
+                    "retried before Retry-After elapsed");
+
+            assertEquals(1, dispatcher.rateLimited());
+            assertEquals(2, dispatcher.sentRequests());
+            assertEquals(5, dispatcher.sentMessages());
+            assertEquals(0, dispatcher.dropped());
+        } finally {
+            scheduler.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body == null ? -1 : bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}